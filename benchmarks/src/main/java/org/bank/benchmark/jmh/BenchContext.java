@@ -0,0 +1,134 @@
+package org.bank.benchmark.jmh;
+
+import org.bank.BankingSystemApplication;
+import org.bank.entities.Account;
+import org.bank.entities.Customer;
+import org.bank.entities.User;
+import org.bank.repository.AccountRepository;
+import org.bank.repository.CustomerRepository;
+import org.bank.repository.UserRepository;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The application on a fresh in-memory H2 database in MySQL mode, shared by the JMH benchmarks and
+ * the load generator; or on a scratch database of the caller's choosing ({@link #startOnDatabase}).
+ */
+public final class BenchContext {
+
+    public static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000000000");
+    public static final String PASSWORD = "bench-password";
+
+    private static final List<String> QUIET = List.of(
+            "spring.jpa.show-sql=false",
+            "logging.level.root=WARN",
+            "logging.level.org.hibernate.SQL=WARN",
+            "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+
+    /** A user who can log in with {@link #PASSWORD}, and the accounts of their customer record. */
+    public record SeededUser(String username, List<Long> accountIds) {}
+
+    private BenchContext() {
+    }
+
+    /**
+     * {@code overrides} are extra {@code key=value} properties, e.g. the posting concurrency strategy.
+     * The servlet stack still starts (on a random port, unused): the security configuration needs it.
+     */
+    public static ConfigurableApplicationContext start(String... overrides) {
+        List<String> properties = new ArrayList<>(List.of("server.port=0"));
+        properties.addAll(List.of(overrides));
+        return start(WebApplicationType.SERVLET, properties.toArray(String[]::new));
+    }
+
+    public static ConfigurableApplicationContext start(WebApplicationType web, String... overrides) {
+        // A database per context so forks and trials never see each other's rows
+        String db = "bench" + UUID.randomUUID().toString().replace("-", "");
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                        + "DB_CLOSE_DELAY=-1;NON_KEYWORDS=KEY,VALUE,USER",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.datasource.hikari.maximum-pool-size=32",
+                "spring.jpa.hibernate.ddl-auto=create-drop"));
+        properties.addAll(QUIET);
+        properties.addAll(List.of(overrides));
+        return run(web, properties);
+    }
+
+    /**
+     * The application on the database given by {@code spring.datasource.url} in {@code args}, for the
+     * benchmarks that need a real MySQL server. Refuses to start without one, so a benchmark can never
+     * fall back to the datasource in application.properties. Arguments may be {@code key=value} or
+     * {@code --key=value}.
+     */
+    public static ConfigurableApplicationContext startOnDatabase(String... args) {
+        List<String> properties = new ArrayList<>(List.of("server.port=0"));
+        properties.addAll(QUIET);
+        for (String arg : args) {
+            properties.add(arg.startsWith("--") ? arg.substring(2) : arg);
+        }
+        if (properties.stream().noneMatch(p -> p.startsWith("spring.datasource.url="))) {
+            throw new IllegalArgumentException("Pass spring.datasource.url=... (a scratch database, never production)");
+        }
+        return run(WebApplicationType.SERVLET, properties);
+    }
+
+    private static ConfigurableApplicationContext run(WebApplicationType web, List<String> properties) {
+        // Later values win; a key repeated on the command line would otherwise become a list
+        Map<String, String> byKey = new LinkedHashMap<>();
+        for (String property : properties) {
+            int eq = property.indexOf('=');
+            byKey.put(eq < 0 ? property : property.substring(0, eq), property);
+        }
+
+        // As command-line arguments: builder default properties would lose to application.properties
+        return new SpringApplicationBuilder(BankingSystemApplication.class)
+                .web(web)
+                .bannerMode(Banner.Mode.OFF)
+                .run(byKey.values().stream().map(p -> "--" + p).toArray(String[]::new));
+    }
+
+    /** One customer owning {@code count} accounts, each with {@link #OPENING_BALANCE}. */
+    public static List<Long> seedAccounts(ConfigurableApplicationContext ctx, int count) {
+        return seedUser(ctx, count).accountIds();
+    }
+
+    /** Like {@link #seedAccounts}, but also returns the username to log in with. */
+    public static SeededUser seedUser(ConfigurableApplicationContext ctx, int count) {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername("bench-" + tag);
+        user.setPassword(ctx.getBean(PasswordEncoder.class).encode(PASSWORD));
+        user.setRole("ROLE_USER");
+        user = ctx.getBean(UserRepository.class).save(user);
+
+        Customer customer = new Customer();
+        customer.setName("Benchmark " + tag);
+        customer.setEmail("bench-" + tag + "@bench.local");
+        customer.setUser(user);
+        customer = ctx.getBean(CustomerRepository.class).save(customer);
+
+        AccountRepository accounts = ctx.getBean(AccountRepository.class);
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Account account = new Account();
+            account.setCustomer(customer);
+            account.setAccountType(i % 2 == 0 ? "SAVINGS" : "CURRENT");
+            account.setBalance(OPENING_BALANCE);
+            ids.add(accounts.save(account).getAccountId());
+        }
+        return new SeededUser(user.getUsername(), ids);
+    }
+}
@@ -0,0 +1,77 @@
+package org.bank.benchmark.jmh;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Side-by-side view of two JMH JSON result files (e.g. before and after a change):
+ * {@code CompareResults <baseline.json> <candidate.json>}.
+ *
+ * Rows are matched on benchmark name plus parameters. The change column is signed so that
+ * positive always means better: higher throughput, or lower time per operation.
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: CompareResults <baseline.json> <candidate.json>");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> candidate = read(new File(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s  %s%n", "benchmark", "baseline", "candidate", "change", "unit");
+        for (Map.Entry<String, Score> entry : baseline.entrySet()) {
+            Score before = entry.getValue();
+            Score after = candidate.get(entry.getKey());
+            if (after == null) {
+                System.out.printf("%-70s %14.3f %14s %9s  %s%n", entry.getKey(), before.score(), "-", "-", before.unit());
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score() * 100;
+            if (!before.higherIsBetter()) {
+                change = -change;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%  %s%n",
+                    entry.getKey(), before.score(), after.score(), change, after.unit());
+        }
+        for (Map.Entry<String, Score> entry : candidate.entrySet()) {
+            if (!baseline.containsKey(entry.getKey())) {
+                Score after = entry.getValue();
+                System.out.printf("%-70s %14s %14.3f %9s  %s%n", entry.getKey(), "-", after.score(), "-", after.unit());
+            }
+        }
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            String name = run.path("benchmark").asText();
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+
+            // Sorted so the key doesn't depend on the order JMH wrote the params in
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> p = fields.next();
+                params.put(p.getKey(), p.getValue().asText());
+            }
+            String key = params.isEmpty() ? name : name + " " + params;
+
+            JsonNode metric = run.path("primaryMetric");
+            String mode = run.path("mode").asText();
+            scores.put(key, new Score(metric.path("score").asDouble(), metric.path("scoreUnit").asText(),
+                    "thrpt".equals(mode)));
+        }
+        return scores;
+    }
+
+    private record Score(double score, String unit, boolean higherIsBetter) {}
+}
@@ -0,0 +1,182 @@
+package org.bank.benchmark.jmh;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.bank.entities.Account;
+import org.bank.entities.Customer;
+import org.bank.repository.CustomerRepository;
+import org.bank.repository.UserRepository;
+import org.bank.service.AccountService;
+import org.bank.service.BankTransactionService;
+import org.bank.service.CustomerService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The reads behind the profile, account list and admin account pages, the customer-by-user
+ * lookup, and a transfer, with the Hibernate second-level and query caches {@code on} or
+ * {@code off}. Each read runs in one read-only transaction (one session, as a request would), and
+ * the JDBC statements prepared are counted through Hibernate statistics. The SQL statements per page of the
+ * measurement iterations are printed at the end of each trial, next to the usual timings.
+ *
+ * The transfer checks that a cached account is replaced when its {@code @Version} is bumped: a
+ * stale entry would show up as optimistic-lock retries (and more statements), not as a speed-up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityCacheBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"on", "off"})
+    public String cache;
+
+    @Param({"4"})
+    public int accounts;
+
+    private ConfigurableApplicationContext ctx;
+    private Statistics statistics;
+    private TransactionTemplate readOnly;
+    private CustomerRepository customerRepository;
+    private CustomerService customerService;
+    private AccountService accountService;
+    private BankTransactionService transactionService;
+
+    private Long userId;
+    private Long customerId;
+    private List<Long> accountIds;
+    private boolean flip;
+
+    private final LongAdder pages = new LongAdder();
+    private long statementsAtIterationStart;
+    private long measuredPages;
+    private long measuredStatements;
+
+    @Setup(Level.Trial)
+    public void start() {
+        boolean enabled = cache.equals("on");
+        List<String> overrides = new ArrayList<>(List.of(
+                "bank.posting.mode=direct",
+                "bank.posting.concurrency=optimistic",
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"));
+        if (!enabled) {
+            overrides.add("spring.jpa.properties.hibernate.cache.use_second_level_cache=false");
+            overrides.add("spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        }
+        ctx = BenchContext.start(overrides.toArray(String[]::new));
+
+        statistics = ctx.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        readOnly = new TransactionTemplate(ctx.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        customerRepository = ctx.getBean(CustomerRepository.class);
+        customerService = ctx.getBean(CustomerService.class);
+        accountService = ctx.getBean(AccountService.class);
+        transactionService = ctx.getBean(BankTransactionService.class);
+
+        BenchContext.SeededUser seeded = BenchContext.seedUser(ctx, accounts);
+        accountIds = seeded.accountIds();
+        userId = ctx.getBean(UserRepository.class).findByUsername(seeded.username()).orElseThrow().getId();
+        customerId = customerService.findByUserId(userId).getCustomerId();
+    }
+
+    @Setup(Level.Iteration)
+    public void markIteration() {
+        pages.reset();
+        statementsAtIterationStart = statistics.getPrepareStatementCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void countIteration(IterationParams iteration) {
+        if (iteration.getType() == IterationType.MEASUREMENT) {
+            measuredPages += pages.sum();
+            measuredStatements += statistics.getPrepareStatementCount() - statementsAtIterationStart;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop(BenchmarkParams params) {
+        String method = params.getBenchmark().substring(params.getBenchmark().lastIndexOf('.') + 1);
+        System.out.printf("%n%s cache=%s: %.2f SQL statements per page (%d pages)%n", method, cache,
+                measuredPages == 0 ? 0.0 : (double) measuredStatements / measuredPages, measuredPages);
+        ctx.close();
+    }
+
+    /** The customer lookup done on registration and login checks (a cached query). */
+    @Benchmark
+    public Customer customerByUser() {
+        return page(() -> customerService.findByUserId(userId));
+    }
+
+    /** The profile page's customer, by id. */
+    @Benchmark
+    public Customer profilePage() {
+        return page(() -> customerRepository.findById(customerId).orElseThrow());
+    }
+
+    /** All of the customer's accounts as entities, balances read. */
+    @Benchmark
+    public BigDecimal accountsPage() {
+        return page(() -> {
+            BigDecimal total = BigDecimal.ZERO;
+            for (Account account : accountService.findByCustomerId(customerId)) {
+                total = total.add(account.getBalance());
+            }
+            return total;
+        });
+    }
+
+    /** The admin account edit form: the account and its owner. */
+    @Benchmark
+    public String adminAccountPage() {
+        return page(() -> {
+            Account account = accountService.findById(accountIds.get(0));
+            return account.getCustomer().getName();
+        });
+    }
+
+    /** Back and forth between the first two accounts, each posting bumping both versions. */
+    @Benchmark
+    public void transfer() {
+        flip = !flip;
+        Long from = accountIds.get(flip ? 0 : 1);
+        Long to = accountIds.get(flip ? 1 : 0);
+        transactionService.transfer(from, to, AMOUNT);
+        pages.increment();
+    }
+
+    private <T> T page(Supplier<T> work) {
+        T result = readOnly.execute(status -> work.get());
+        pages.increment();
+        return result;
+    }
+}
@@ -0,0 +1,138 @@
+package org.bank.benchmark.jmh;
+
+import org.bank.entities.Transaction;
+import org.bank.repository.TransactionRepository;
+import org.bank.service.BankTransactionService;
+import org.bank.service.TransactionBatchWriter;
+import org.bank.service.TransactionPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History reads over a customer with {@code accounts} accounts and {@code rowsPerAccount}
+ * postings each (a quarter of them transfers in from an outside account): the keyset page
+ * service method at the top and {@code depth} pages down, the two per-account
+ * {@link TransactionRepository} keyset finders it is built on, and the unbounded per-account
+ * finder as a baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int INSERT_BATCH = 1000;
+    private static final LocalDateTime NEWEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    @Param({"8"})
+    public int accounts;
+
+    @Param({"10000"})
+    public int rowsPerAccount;
+
+    @Param({"100"})
+    public int depth;
+
+    private ConfigurableApplicationContext ctx;
+    private BankTransactionService service;
+    private TransactionRepository repository;
+    private List<Long> accountIds;
+    private String deepCursor;
+
+    @Setup(Level.Trial)
+    public void start() {
+        ctx = BenchContext.start();
+        service = ctx.getBean(BankTransactionService.class);
+        repository = ctx.getBean(TransactionRepository.class);
+
+        List<Long> seeded = BenchContext.seedAccounts(ctx, accounts + 1);
+        accountIds = seeded.subList(0, accounts);
+        seedHistory(seeded.get(accounts));
+
+        TransactionPage page = service.findHistoryPage(accountIds, null, PAGE_SIZE);
+        for (int i = 1; i < depth && page.nextCursor() != null; i++) {
+            page = service.findHistoryPage(accountIds, page.nextCursor(), PAGE_SIZE);
+        }
+        deepCursor = page.nextCursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public TransactionPage historyFirstPage() {
+        return service.findHistoryPage(accountIds, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public TransactionPage historyDeepPage() {
+        return service.findHistoryPage(accountIds, deepCursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> accountHistoryBefore() {
+        return repository.findAccountHistoryBefore(accountIds.get(0), NEWEST, Long.MAX_VALUE, Pageable.ofSize(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<Transaction> destinationHistoryBefore() {
+        return repository.findDestinationHistoryBefore(accountIds.get(0), NEWEST, Long.MAX_VALUE, Pageable.ofSize(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<Transaction> unboundedAccountHistory() {
+        return repository.findByAccountAccountIdOrderByTimestampDesc(accountIds.get(0));
+    }
+
+    // One row per second going back in time, written with the posting engines' JDBC batch writer
+    private void seedHistory(long outsideAccount) {
+        TransactionBatchWriter writer = ctx.getBean(TransactionBatchWriter.class);
+        TransactionTemplate tx = new TransactionTemplate(ctx.getBean(PlatformTransactionManager.class));
+        Random rnd = new Random(42);
+        LocalDateTime start = LocalDateTime.now().withNano(0);
+
+        int total = accounts * rowsPerAccount;
+        for (int from = 0; from < total; from += INSERT_BATCH) {
+            List<Transaction> rows = new ArrayList<>(INSERT_BATCH);
+            for (int i = from; i < Math.min(from + INSERT_BATCH, total); i++) {
+                long account = accountIds.get(rnd.nextInt(accounts));
+                BigDecimal amount = BigDecimal.valueOf(1 + rnd.nextInt(500));
+                LocalDateTime ts = start.minusSeconds(i);
+                rows.add(switch (rnd.nextInt(4)) {
+                    case 0 -> TransactionBatchWriter.successRow(account, null, "DEPOSIT", amount, ts);
+                    case 1 -> TransactionBatchWriter.successRow(account, null, "WITHDRAW", amount, ts);
+                    case 2 -> TransactionBatchWriter.transferRow(account, null, outsideAccount, null, amount, ts);
+                    default -> TransactionBatchWriter.transferRow(outsideAccount, null, account, null, amount, ts);
+                });
+            }
+            tx.executeWithoutResult(status -> writer.insert(rows));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.bank.benchmark.jmh;
+
+import org.bank.service.BankTransactionService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link BankTransactionService#deposit}, {@code withdraw} and {@code transfer} under three
+ * contention shapes, for each posting concurrency strategy. Run with {@code -t <threads>} to
+ * set the number of concurrent callers.
+ *
+ * <ul>
+ *   <li>{@code uniform}: every call picks random accounts;</li>
+ *   <li>{@code hot}: every call touches the same account (transfers alternate into and out of it);</li>
+ *   <li>{@code ping-pong}: each thread owns an account pair and transfers back and forth within it.</li>
+ * </ul>
+ *
+ * Calls that give up (e.g. optimistic retries exhausted) are counted in the {@code failures}
+ * secondary result instead of aborting the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LedgerBenchmark {
+
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"uniform", "hot", "ping-pong"})
+    public String shape;
+
+    @Param({"optimistic", "ordered-locking"})
+    public String concurrency;
+
+    @Param({"64"})
+    public int accounts;
+
+    private ConfigurableApplicationContext ctx;
+    private BankTransactionService service;
+    private List<Long> accountIds;
+    private final AtomicInteger nextPair = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void start() {
+        ctx = BenchContext.start("bank.posting.mode=direct", "bank.posting.concurrency=" + concurrency);
+        service = ctx.getBean(BankTransactionService.class);
+        accountIds = BenchContext.seedAccounts(ctx, accounts);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public Object deposit(Caller caller) {
+        try {
+            return service.deposit(caller.single(this), AMOUNT);
+        } catch (RuntimeException e) {
+            caller.failures++;
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object withdraw(Caller caller) {
+        try {
+            return service.withdraw(caller.single(this), AMOUNT);
+        } catch (RuntimeException e) {
+            caller.failures++;
+            return e;
+        }
+    }
+
+    @Benchmark
+    public void transfer(Caller caller) {
+        caller.nextPair(this);
+        try {
+            service.transfer(caller.from, caller.to, AMOUNT);
+        } catch (RuntimeException e) {
+            caller.failures++;
+        }
+    }
+
+    /** Per-thread account choice; {@code failures} is reported alongside the score. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Caller {
+
+        public long failures;
+
+        private long ownA;
+        private long ownB;
+        private boolean flip;
+        private long from;
+        private long to;
+
+        @Setup(Level.Iteration)
+        public void resetCounters() {
+            failures = 0;
+        }
+
+        @Setup(Level.Trial)
+        public void pickOwnPair(LedgerBenchmark bench) {
+            int pair = bench.nextPair.getAndIncrement();
+            int n = bench.accountIds.size();
+            ownA = bench.accountIds.get((2 * pair) % n);
+            ownB = bench.accountIds.get((2 * pair + 1) % n);
+        }
+
+        long single(LedgerBenchmark bench) {
+            return switch (bench.shape) {
+                case "hot" -> bench.accountIds.get(0);
+                case "ping-pong" -> ownA;
+                default -> random(bench.accountIds);
+            };
+        }
+
+        void nextPair(LedgerBenchmark bench) {
+            flip = !flip;
+            switch (bench.shape) {
+                case "hot" -> {
+                    long hot = bench.accountIds.get(0);
+                    long other = bench.accountIds.get(1 + ThreadLocalRandom.current().nextInt(bench.accountIds.size() - 1));
+                    from = flip ? hot : other;
+                    to = flip ? other : hot;
+                }
+                case "ping-pong" -> {
+                    from = flip ? ownA : ownB;
+                    to = flip ? ownB : ownA;
+                }
+                default -> {
+                    from = random(bench.accountIds);
+                    do {
+                        to = random(bench.accountIds);
+                    } while (to == from);
+                }
+            }
+        }
+
+        private static long random(List<Long> ids) {
+            return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package org.bank.benchmark.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.bank.benchmark.jmh.BenchContext;
+import org.bank.benchmark.jmh.BenchContext.SeededUser;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the real login, deposit, withdraw, transfer and dashboard endpoints over HTTP and
+ * reports p50/p99/p99.9 latency per endpoint.
+ *
+ * Boots the full application (Tomcat on a random port) on an in-memory H2 database, seeds
+ * {@code load.users} users with {@code load.accounts-per-user} accounts each and logs them all
+ * in. Every request then picks an operation from {@code load.mix} and a random user, and uses
+ * that user's session cookie.
+ *
+ * <ul>
+ *   <li>Open model (default): requests start at a constant {@code load.rate} per second whether or
+ *       not earlier ones have finished, the way independent users arrive. Latency is measured from
+ *       the scheduled start, so a server that falls behind shows up in the tail instead of quietly
+ *       slowing the generator down (coordinated omission).</li>
+ *   <li>Closed model ({@code load.rate=0}): {@code load.clients} clients each send their next
+ *       request as soon as the previous one completes.</li>
+ * </ul>
+ *
+ * Any {@code --key=value} argument is passed to the application, so posting settings can be
+ * varied per run, e.g. {@code --bank.posting.concurrency=ordered-locking}. Full percentile
+ * distributions are written to {@code load.hgrm-dir} as {@code <operation>.hgrm} (milliseconds)
+ * for plotting or diffing between runs.
+ */
+public class LoadGenerator {
+
+    enum Operation { LOGIN, DEPOSIT, WITHDRAW, TRANSFER, DASHBOARD }
+
+    private static final String DEFAULT_MIX = "login:5,deposit:25,withdraw:20,transfer:25,dashboard:25";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI base;
+    private final HttpClient http;
+    private final List<Session> sessions;
+    private final List<Long> allAccounts;
+    private final Operation[] mix;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    LoadGenerator(URI base, List<SeededUser> users, Map<Operation, Integer> weights) {
+        this.base = base;
+        // Redirects are not followed: a POST is measured up to its 302, the dashboard is its own request
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.sessions = users.stream().map(Session::new).toList();
+        this.allAccounts = users.stream().flatMap(u -> u.accountIds().stream()).toList();
+
+        List<Operation> slots = new ArrayList<>();
+        weights.forEach((op, weight) -> {
+            for (int i = 0; i < weight; i++) slots.add(op);
+        });
+        this.mix = slots.toArray(Operation[]::new);
+        for (Operation op : Operation.values()) {
+            stats.put(op, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> overrides = new ArrayList<>(List.of("server.port=0"));
+        for (String arg : args) {
+            overrides.add(arg.startsWith("--") ? arg.substring(2) : arg);
+        }
+        ConfigurableApplicationContext ctx = BenchContext.start(WebApplicationType.SERVLET, overrides.toArray(String[]::new));
+
+        try {
+            Environment env = ctx.getEnvironment();
+            int users = env.getProperty("load.users", Integer.class, 50);
+            int accountsPerUser = env.getProperty("load.accounts-per-user", Integer.class, 4);
+            int seconds = env.getProperty("load.seconds", Integer.class, 30);
+            int warmupSeconds = env.getProperty("load.warmup-seconds", Integer.class, 10);
+            double rate = env.getProperty("load.rate", Double.class, 500.0);
+            int clients = env.getProperty("load.clients", Integer.class, 64);
+            Map<Operation, Integer> weights = parseMix(env.getProperty("load.mix", DEFAULT_MIX));
+            Path hgrmDir = Path.of(env.getProperty("load.hgrm-dir", "target/load"));
+
+            int port = ((WebServerApplicationContext) ctx).getWebServer().getPort();
+            List<SeededUser> seeded = new ArrayList<>(users);
+            for (int i = 0; i < users; i++) {
+                seeded.add(BenchContext.seedUser(ctx, accountsPerUser));
+            }
+
+            LoadGenerator generator = new LoadGenerator(URI.create("http://localhost:" + port), seeded, weights);
+            generator.loginAll();
+
+            String model = rate > 0 ? String.format("open, %.0f req/s", rate) : "closed, " + clients + " clients";
+            System.out.printf("%s; %d users x %d accounts; mix %s; warmup %ds, measured %ds%n",
+                    model, users, accountsPerUser, weights, warmupSeconds, seconds);
+
+            generator.run(rate, clients, warmupSeconds);
+            generator.reset();
+            generator.run(rate, clients, seconds);
+            generator.report(System.out, seconds, hgrmDir);
+        } finally {
+            ctx.close();
+        }
+    }
+
+    // ================== LOAD MODELS ==================
+    void run(double rate, int clients, int seconds) {
+        if (rate > 0) {
+            runOpen(rate, seconds);
+        } else {
+            runClosed(clients, seconds);
+        }
+    }
+
+    private void runOpen(double rate, int seconds) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        // Closing the executor waits for the requests still in flight
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long scheduled = start; scheduled < end; scheduled += interval) {
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+                long startAt = scheduled;
+                requests.execute(() -> fire(startAt));
+            }
+        }
+    }
+
+    private void runClosed(int clients, int seconds) {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                clientThreads.execute(() -> {
+                    while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                        fire(System.nanoTime());
+                    }
+                });
+            }
+        }
+    }
+
+    private void fire(long startNanos) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        Operation op = mix[rnd.nextInt(mix.length)];
+        Session session = sessions.get(rnd.nextInt(sessions.size()));
+
+        boolean ok;
+        try {
+            ok = execute(op, session, rnd);
+        } catch (IOException e) {
+            ok = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        stats.get(op).record(System.nanoTime() - startNanos, ok);
+    }
+
+    // ================== FLOWS ==================
+    private boolean execute(Operation op, Session session, ThreadLocalRandom rnd) throws IOException, InterruptedException {
+        return switch (op) {
+            case LOGIN -> login(session);
+            case DEPOSIT -> posted(post(session, "/transactions/deposit",
+                    "accountId", session.randomAccount(rnd), "amount", amount(rnd, 10_000)));
+            case WITHDRAW -> posted(post(session, "/transactions/withdraw",
+                    "accountId", session.randomAccount(rnd), "amount", amount(rnd, 5_000)));
+            case TRANSFER -> {
+                long from = session.randomAccount(rnd);
+                long to;
+                do {
+                    to = allAccounts.get(rnd.nextInt(allAccounts.size()));
+                } while (to == from);
+                yield posted(post(session, "/transactions/transfer",
+                        "fromAccountId", from, "toAccountId", to, "amount", amount(rnd, 5_000)));
+            }
+            case DASHBOARD -> send(session, HttpRequest.newBuilder(base.resolve("/dashboard")).GET()).statusCode() == 200;
+        };
+    }
+
+    void loginAll() throws IOException, InterruptedException {
+        for (Session session : sessions) {
+            if (!login(session)) {
+                throw new IllegalStateException("Login failed for " + session.user.username());
+            }
+        }
+    }
+
+    // A fresh session each time; requests already in flight keep using the previous one
+    private boolean login(Session session) throws IOException, InterruptedException {
+        HttpResponse<Void> response = http.send(HttpRequest.newBuilder(base.resolve("/perform_login"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        form("username", session.user.username(), "password", BenchContext.PASSWORD)))
+                .build(), HttpResponse.BodyHandlers.discarding());
+
+        boolean ok = response.statusCode() == 302
+                && response.headers().firstValue("Location").orElse("").endsWith("/dashboard");
+        if (ok) {
+            response.headers().allValues("Set-Cookie").stream()
+                    .filter(c -> c.startsWith("JSESSIONID="))
+                    .findFirst()
+                    .ifPresent(c -> session.cookie = c.substring(0, c.indexOf(';') < 0 ? c.length() : c.indexOf(';')));
+        }
+        return ok;
+    }
+
+    private HttpResponse<Void> post(Session session, String path, Object... params) throws IOException, InterruptedException {
+        return send(session, HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form(params))));
+    }
+
+    private HttpResponse<Void> send(Session session, HttpRequest.Builder request) throws IOException, InterruptedException {
+        return http.send(request.timeout(REQUEST_TIMEOUT).header("Cookie", session.cookie).build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    // The transaction POSTs redirect to the dashboard with ?success= only when the posting went through
+    private static boolean posted(HttpResponse<Void> response) {
+        return response.statusCode() == 302
+                && response.headers().firstValue("Location").orElse("").contains("success=");
+    }
+
+    private static BigDecimal amount(ThreadLocalRandom rnd, int maxCents) {
+        return BigDecimal.valueOf(1 + rnd.nextInt(maxCents), 2);
+    }
+
+    private static String form(Object... params) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < params.length; i += 2) {
+            if (i > 0) body.append('&');
+            body.append(params[i]).append('=')
+                    .append(URLEncoder.encode(String.valueOf(params[i + 1]), StandardCharsets.UTF_8));
+        }
+        return body.toString();
+    }
+
+    // ================== REPORT ==================
+    void reset() {
+        stats.values().forEach(Stats::reset);
+    }
+
+    void report(PrintStream out, int seconds, Path hgrmDir) throws IOException {
+        Files.createDirectories(hgrmDir);
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+
+        out.printf("%-10s %10s %10s %8s %10s %10s %10s %10s%n",
+                "operation", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Histogram h = entry.getValue().latencies.copy();
+            long errors = entry.getValue().errors.sum();
+            if (h.getTotalCount() == 0) continue;
+            print(out, entry.getKey().name().toLowerCase(), h, errors, seconds);
+            all.add(h);
+            allErrors += errors;
+
+            try (PrintStream file = new PrintStream(hgrmDir.resolve(entry.getKey().name().toLowerCase() + ".hgrm").toFile())) {
+                h.outputPercentileDistribution(file, 1_000_000.0);
+            }
+        }
+        print(out, "all", all, allErrors, seconds);
+    }
+
+    private static void print(PrintStream out, String name, Histogram h, long errors, int seconds) {
+        out.printf("%-10s %10d %10.1f %8d %10.2f %10.2f %10.2f %10.2f%n",
+                name, h.getTotalCount(), h.getTotalCount() / (double) seconds, errors,
+                millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(99)),
+                millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("load.mix entries are operation:weight, got '" + part + "'");
+            }
+            weights.put(Operation.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("load.mix has no positive weights: " + spec);
+        }
+        return weights;
+    }
+
+    /** A seeded user and their current session cookie. */
+    private static final class Session {
+        final SeededUser user;
+        volatile String cookie = "";
+
+        Session(SeededUser user) {
+            this.user = user;
+        }
+
+        long randomAccount(ThreadLocalRandom rnd) {
+            return user.accountIds().get(rnd.nextInt(user.accountIds().size()));
+        }
+    }
+
+    /** Latencies (including failed requests) and the failure count for one operation. */
+    private static final class Stats {
+        final ConcurrentHistogram latencies = new ConcurrentHistogram(3);
+        final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean ok) {
+            latencies.recordValue(nanos);
+            if (!ok) errors.increment();
+        }
+
+        void reset() {
+            latencies.reset();
+            errors.reset();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.bank.benchmark.load;
+
+import org.bank.benchmark.jmh.BenchContext;
+import org.bank.service.BankTransactionService;
+import org.bank.service.GroupCommitPostingEngine;
+import org.bank.service.Posting;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Postings/sec of the direct path vs the group-commit engine at 1, 16 and 256 concurrent callers.
+ *
+ * Point it at a scratch database, never at production:
+ * <pre>
+ * mvn -f benchmarks/pom.xml package exec:exec@throughput -Dbench.args="\
+ *      spring.datasource.url=jdbc:mysql://localhost:3306/bank_bench spring.datasource.username=... \
+ *      spring.datasource.hikari.maximum-pool-size=2 bench.seconds=20 bench.accounts=64"
+ * </pre>
+ */
+public class PostingThroughputBenchmark {
+
+    private static final int[] CALLERS = {1, 16, 256};
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext ctx = BenchContext.startOnDatabase(args);
+
+        try {
+            int seconds = ctx.getEnvironment().getProperty("bench.seconds", Integer.class, 20);
+            int accountCount = ctx.getEnvironment().getProperty("bench.accounts", Integer.class, 64);
+
+            List<Long> accounts = BenchContext.seedAccounts(ctx, accountCount);
+            BankTransactionService direct = ctx.getBean(BankTransactionService.class);
+            GroupCommitPostingEngine groupCommit = ctx.getBean(GroupCommitPostingEngine.class);
+
+            System.out.printf("%-14s %8s %14s %10s%n", "mode", "callers", "postings/sec", "failures");
+            for (int callers : CALLERS) {
+                Result d = run(callers, seconds, accounts, p -> post(direct, p));
+                System.out.printf("%-14s %8d %14.1f %10d%n", "direct", callers, d.perSecond(), d.failures());
+
+                Result g = run(callers, seconds, accounts, p -> groupCommit.submit(p).join());
+                System.out.printf("%-14s %8d %14.1f %10d%n", "group-commit", callers, g.perSecond(), g.failures());
+            }
+        } finally {
+            ctx.close();
+        }
+    }
+
+    private static void post(BankTransactionService service, Posting p) {
+        switch (p.kind()) {
+            case DEPOSIT -> service.deposit(p.accountId(), p.amount());
+            case WITHDRAW -> service.withdraw(p.accountId(), p.amount());
+            case TRANSFER -> service.transfer(p.accountId(), p.targetAccountId(), p.amount());
+        }
+    }
+
+    private static Result run(int callers, int seconds, List<Long> accounts,
+                              Consumer<Posting> sink) throws InterruptedException {
+        LongAdder ok = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        for (int i = 0; i < callers; i++) {
+            pool.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    try {
+                        sink.accept(randomPosting(rnd, accounts));
+                        ok.increment();
+                    } catch (RuntimeException e) {
+                        failed.increment();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        return new Result(ok.sum() / (double) seconds, failed.sum());
+    }
+
+    // 50% deposits, 25% withdrawals, 25% transfers; balances are seeded high enough that
+    // withdrawals and transfers rarely bounce.
+    private static Posting randomPosting(ThreadLocalRandom rnd, List<Long> accounts) {
+        Long a = accounts.get(rnd.nextInt(accounts.size()));
+        BigDecimal amount = BigDecimal.valueOf(rnd.nextInt(1, 100));
+        int roll = rnd.nextInt(4);
+        if (roll < 2) return Posting.deposit(a, amount);
+        if (roll == 2) return Posting.withdraw(a, amount);
+        Long b = accounts.get(rnd.nextInt(accounts.size()));
+        return a.equals(b) ? Posting.deposit(a, amount) : Posting.transfer(a, b, amount);
+    }
+
+    private record Result(double perSecond, long failures) {}
+}
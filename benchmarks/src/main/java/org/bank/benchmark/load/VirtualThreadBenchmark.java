@@ -0,0 +1,169 @@
+package org.bank.benchmark.load;
+
+import org.bank.benchmark.jmh.BenchContext;
+import org.bank.service.UserCache;
+import org.bank.service.WorkerThreads;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request handling on a Tomcat-sized platform thread pool vs one virtual thread per request,
+ * while the database is slow.
+ *
+ * Each simulated request is either a DB request (holds a pooled connection through
+ * {@code SELECT SLEEP} for {@code bench.db-millis}) or a cheap one (a {@link UserCache} hit).
+ * {@code bench.clients} closed-loop clients keep requests coming. On platform threads the DB
+ * requests end up occupying the whole pool waiting for connections and cheap requests queue
+ * behind them; on virtual threads only the DB requests wait. Reports requests/sec and p50/p99/max
+ * latency per request kind, queueing included.
+ *
+ * Needs MySQL ({@code SLEEP}). Point it at a scratch database, never at production:
+ * <pre>
+ * mvn -f benchmarks/pom.xml package exec:exec@virtual-threads -Dbench.args="\
+ *      spring.datasource.url=jdbc:mysql://localhost:3306/bank_bench spring.datasource.username=... \
+ *      spring.datasource.hikari.maximum-pool-size=8 bench.seconds=20 bench.clients=400"
+ * </pre>
+ */
+public class VirtualThreadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext ctx = BenchContext.startOnDatabase(args);
+
+        try {
+            int seconds = ctx.getEnvironment().getProperty("bench.seconds", Integer.class, 20);
+            int warmupSeconds = ctx.getEnvironment().getProperty("bench.warmup-seconds", Integer.class, 5);
+            int clients = ctx.getEnvironment().getProperty("bench.clients", Integer.class, 400);
+            // Tomcat's default server.tomcat.threads.max
+            int platformThreads = ctx.getEnvironment().getProperty("bench.platform-threads", Integer.class, 200);
+            int dbMillis = ctx.getEnvironment().getProperty("bench.db-millis", Integer.class, 50);
+            double dbShare = ctx.getEnvironment().getProperty("bench.db-share", Double.class, 0.2);
+
+            JdbcTemplate jdbc = ctx.getBean(JdbcTemplate.class);
+            UserCache userCache = ctx.getBean(UserCache.class);
+            String username = BenchContext.seedUser(ctx, 1).username();
+            userCache.findByUsername(username);
+
+            Callable<Object> dbRequest = () -> jdbc.queryForObject("SELECT SLEEP(?)", Integer.class, dbMillis / 1000.0);
+            Callable<Object> cheapRequest = () -> userCache.findByUsername(username);
+
+            System.out.printf("carrier threads: %d, connection pool: %s, DB latency: %d ms, DB share: %.0f%%%n",
+                    WorkerThreads.carrierThreads(),
+                    ctx.getEnvironment().getProperty("spring.datasource.hikari.maximum-pool-size", "10"),
+                    dbMillis, dbShare * 100);
+            System.out.printf("%-14s %-6s %12s %10s %10s %10s %10s%n",
+                    "mode", "kind", "requests/s", "p50 ms", "p99 ms", "max ms", "failures");
+
+            for (boolean virtual : new boolean[]{false, true}) {
+                String mode = virtual ? "virtual" : "platform-" + platformThreads;
+                ExecutorService server = virtual
+                        ? Executors.newVirtualThreadPerTaskExecutor()
+                        : Executors.newFixedThreadPool(platformThreads);
+                try {
+                    run(server, clients, warmupSeconds, dbShare, dbRequest, cheapRequest);
+                    Result result = run(server, clients, seconds, dbShare, dbRequest, cheapRequest);
+                    print(mode, "db", result.db(), result.dbFailures(), seconds);
+                    print(mode, "cheap", result.cheap(), result.cheapFailures(), seconds);
+                } finally {
+                    server.shutdownNow();
+                    server.awaitTermination(30, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            ctx.close();
+        }
+    }
+
+    private static Result run(ExecutorService server, int clients, int seconds, double dbShare,
+                              Callable<Object> dbRequest, Callable<Object> cheapRequest) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Samples> db = new ArrayList<>();
+        List<Samples> cheap = new ArrayList<>();
+        LongAdder dbFailures = new LongAdder();
+        LongAdder cheapFailures = new LongAdder();
+
+        // Clients are virtual in both modes so only the server side differs
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                Samples dbSamples = new Samples();
+                Samples cheapSamples = new Samples();
+                db.add(dbSamples);
+                cheap.add(cheapSamples);
+
+                clientThreads.submit(() -> {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        boolean isDb = rnd.nextDouble() < dbShare;
+                        long start = System.nanoTime();
+                        try {
+                            Future<Object> response = server.submit(isDb ? dbRequest : cheapRequest);
+                            response.get();
+                            (isDb ? dbSamples : cheapSamples).add(System.nanoTime() - start);
+                        } catch (ExecutionException e) {
+                            (isDb ? dbFailures : cheapFailures).increment();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+            }
+        }
+        return new Result(Samples.merge(db), dbFailures.sum(), Samples.merge(cheap), cheapFailures.sum());
+    }
+
+    private static void print(String mode, String kind, long[] sortedNanos, long failures, int seconds) {
+        System.out.printf("%-14s %-6s %12.1f %10.2f %10.2f %10.2f %10d%n",
+                mode, kind, sortedNanos.length / (double) seconds,
+                millis(percentile(sortedNanos, 0.50)), millis(percentile(sortedNanos, 0.99)),
+                millis(sortedNanos.length == 0 ? 0 : sortedNanos[sortedNanos.length - 1]), failures);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /** Latencies recorded by one client thread. */
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        static long[] merge(List<Samples> all) {
+            int total = all.stream().mapToInt(s -> s.size).sum();
+            long[] merged = new long[total];
+            int offset = 0;
+            for (Samples s : all) {
+                System.arraycopy(s.values, 0, merged, offset, s.size);
+                offset += s.size;
+            }
+            Arrays.sort(merged);
+            return merged;
+        }
+    }
+
+    private record Result(long[] db, long dbFailures, long[] cheap, long cheapFailures) {}
+}
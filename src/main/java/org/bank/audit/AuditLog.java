@@ -0,0 +1,309 @@
+package org.bank.audit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.bank.entities.Transaction;
+import org.bank.service.Posting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Audit trail of postings as JSON lines in {@code bank.audit.dir}, written off the posting path.
+ *
+ * Callers copy a handful of fields into a preallocated slot of a bounded ring buffer (a
+ * lock-free multi-producer queue: one CAS to claim a slot, one volatile write to publish it)
+ * and return. A single writer thread formats and appends the events, rolling {@code audit.log}
+ * over to a timestamped file at {@code bank.audit.max-file-mb} and keeping the newest
+ * {@code bank.audit.max-files}. When the buffer is full the event is dropped and counted
+ * instead of making the posting wait; the drop count is published as a metric.
+ */
+@Component
+public class AuditLog implements MeterBinder {
+
+    private static final String CURRENT_FILE = "audit.log";
+    private static final String ROLLED_PREFIX = "audit-";
+    private static final DateTimeFormatter ROLLED_NAME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long NONE = -1;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder writeErrors = new LongAdder();
+
+    private volatile boolean running = true;
+    private volatile Thread writer;
+
+    // Writer thread only
+    private final StringBuilder line = new StringBuilder(256);
+    private BufferedWriter out;
+    private long fileBytes;
+
+    @Autowired
+    public AuditLog(@Value("${bank.audit.enabled:true}") boolean enabled,
+                    @Value("${bank.audit.dir:audit}") String directory,
+                    @Value("${bank.audit.buffer-size:65536}") int bufferSize,
+                    @Value("${bank.audit.max-file-mb:64}") int maxFileMegabytes,
+                    @Value("${bank.audit.max-files:10}") int maxFiles) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxFileBytes = maxFileMegabytes * 1024L * 1024L;
+        this.maxFiles = Math.max(1, maxFiles);
+
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot(i);
+        }
+    }
+
+    /**
+     * Record how a posting ended. {@code tx} is the posted row on success and null otherwise.
+     * Never blocks; returns false if the event was dropped.
+     */
+    public boolean posting(Posting posting, String outcome, Transaction tx, long latencyNanos) {
+        if (!enabled) return false;
+
+        long position = claimed.get();
+        while (true) {
+            Slot slot = slots[(int) (position & mask)];
+            long diff = slot.sequence - position;
+            if (diff == 0) {
+                if (claimed.compareAndSet(position, position + 1)) {
+                    slot.timeMillis = System.currentTimeMillis();
+                    slot.type = posting.kind().name();
+                    slot.outcome = outcome;
+                    slot.accountId = posting.accountId() == null ? NONE : posting.accountId();
+                    slot.targetAccountId = posting.targetAccountId() == null ? NONE : posting.targetAccountId();
+                    slot.amount = posting.amount();
+                    slot.transactionId = tx == null || tx.getTransactionId() == null ? NONE : tx.getTransactionId();
+                    slot.balanceAfter = tx == null ? null : tx.getBalanceAfter();
+                    slot.targetBalanceAfter = tx == null ? null : tx.getDestinationBalanceAfter();
+                    slot.latencyMicros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+                    slot.sequence = position + 1; // publish
+                    startIfNeeded();
+                    return true;
+                }
+                position = claimed.get();
+            } else if (diff < 0) {
+                // The writer hasn't freed this slot yet: the buffer is full
+                dropped.increment();
+                return false;
+            } else {
+                position = claimed.get();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        Thread thread;
+        synchronized (this) {
+            thread = writer;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("bank.audit.events", written, LongAdder::sum)
+                .description("Audit events by what happened to them")
+                .tag("result", "written")
+                .register(registry);
+        FunctionCounter.builder("bank.audit.events", dropped, LongAdder::sum)
+                .description("Audit events by what happened to them")
+                .tag("result", "dropped")
+                .register(registry);
+        FunctionCounter.builder("bank.audit.write.errors", writeErrors, LongAdder::sum)
+                .description("Failed writes to the audit file")
+                .register(registry);
+        Gauge.builder("bank.audit.backlog", this, log -> log.claimed.get() - log.consumed)
+                .description("Events waiting for the writer")
+                .register(registry);
+    }
+
+    private void startIfNeeded() {
+        if (writer != null) return;
+        synchronized (this) {
+            if (writer == null) {
+                Thread thread = new Thread(this::runWriter, "audit-writer");
+                thread.setDaemon(true);
+                thread.start();
+                writer = thread;
+            }
+        }
+    }
+
+    // ================== WRITER LOOP ==================
+    private void runWriter() {
+        while (true) {
+            boolean wrote = false;
+            Slot slot;
+            while ((slot = nextPublished()) != null) {
+                format(slot);
+                slot.sequence = consumed + slots.length; // free it for the producers' next lap
+                consumed++;
+                append();
+                wrote = true;
+            }
+            if (wrote) {
+                flush();
+            } else if (!running) {
+                break;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        closeQuietly();
+    }
+
+    private Slot nextPublished() {
+        Slot slot = slots[(int) (consumed & mask)];
+        return slot.sequence == consumed + 1 ? slot : null;
+    }
+
+    private void format(Slot slot) {
+        line.setLength(0);
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(slot.timeMillis)).append('"');
+        line.append(",\"type\":\"").append(slot.type).append('"');
+        line.append(",\"outcome\":\"").append(slot.outcome).append('"');
+        field("account", slot.accountId);
+        field("targetAccount", slot.targetAccountId);
+        field("amount", slot.amount);
+        field("transactionId", slot.transactionId);
+        field("balanceAfter", slot.balanceAfter);
+        field("targetBalanceAfter", slot.targetBalanceAfter);
+        line.append(",\"latencyMicros\":").append(slot.latencyMicros);
+        line.append("}\n");
+
+        // Drop references so the slot doesn't keep them alive
+        slot.amount = null;
+        slot.balanceAfter = null;
+        slot.targetBalanceAfter = null;
+    }
+
+    private void field(String name, long value) {
+        if (value != NONE) line.append(",\"").append(name).append("\":").append(value);
+    }
+
+    private void field(String name, BigDecimal value) {
+        if (value != null) line.append(",\"").append(name).append("\":\"").append(value.toPlainString()).append('"');
+    }
+
+    private void append() {
+        try {
+            if (out == null || fileBytes >= maxFileBytes) {
+                roll();
+            }
+            out.append(line);
+            fileBytes += line.length();
+            written.increment();
+        } catch (IOException | UncheckedIOException e) {
+            writeErrors.increment();
+            closeQuietly();
+        }
+    }
+
+    private void flush() {
+        try {
+            if (out != null) out.flush();
+        } catch (IOException e) {
+            writeErrors.increment();
+            closeQuietly();
+        }
+    }
+
+    private void roll() throws IOException {
+        closeQuietly();
+        Files.createDirectories(directory);
+        Path current = directory.resolve(CURRENT_FILE);
+        if (Files.exists(current) && Files.size(current) >= maxFileBytes) {
+            Path rolled = directory.resolve(ROLLED_PREFIX + ROLLED_NAME.format(Instant.now()) + ".log");
+            Files.move(current, rolled, StandardCopyOption.ATOMIC_MOVE);
+            deleteOldest();
+        }
+        out = Files.newBufferedWriter(current, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(current);
+    }
+
+    // Rolled names sort by time; the current file counts towards max-files
+    private void deleteOldest() throws IOException {
+        List<Path> rolled;
+        try (Stream<Path> files = Files.list(directory)) {
+            rolled = files.filter(p -> p.getFileName().toString().startsWith(ROLLED_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < rolled.size() - (maxFiles - 1); i++) {
+            Files.deleteIfExists(rolled.get(i));
+        }
+    }
+
+    private void closeQuietly() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+        }
+        out = null;
+    }
+
+    /** One ring buffer entry; {@code sequence} says whose turn it is (Vyukov bounded queue). */
+    private static final class Slot {
+        volatile long sequence;
+        long timeMillis;
+        String type;
+        String outcome;
+        long accountId;
+        long targetAccountId;
+        BigDecimal amount;
+        long transactionId;
+        BigDecimal balanceAfter;
+        BigDecimal targetBalanceAfter;
+        long latencyMicros;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.bank.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the caller's {@link org.bank.dto.CustomerContext} into a controller method
+ * parameter; null when nobody is signed in.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentCustomer {
+}
@@ -0,0 +1,36 @@
+package org.bank.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.bank.dto.CustomerContext;
+import org.bank.service.CustomerContextService;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/** Resolves {@link CurrentCustomer} parameters through {@link CustomerContextService}. */
+public class CurrentCustomerArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final CustomerContextService customerContextService;
+
+    public CurrentCustomerArgumentResolver(CustomerContextService customerContextService) {
+        this.customerContextService = customerContextService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentCustomer.class)
+                && CustomerContext.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        return customerContextService.current(
+                SecurityContextHolder.getContext().getAuthentication(),
+                request == null ? null : request.getSession(true));
+    }
+}
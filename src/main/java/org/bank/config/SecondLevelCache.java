@@ -0,0 +1,77 @@
+package org.bank.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.bank.entities.Account;
+import org.bank.entities.Customer;
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Invalidation for writes Hibernate does not see.
+ *
+ * Entity saves and JPQL bulk updates keep the second-level cache current by themselves (an
+ * account save bumps its {@code @Version} and replaces the cached entry on commit). The posting
+ * engines, journal replay and interest accrual update {@code accounts} with plain JDBC, so they
+ * must call {@link #evictAccounts}: the entries are dropped at once and again after the
+ * transaction completes, so a read that re-cached the old row in between does not survive the
+ * commit. Without that, an optimistic posting would keep loading a stale version and fail.
+ */
+@Component
+public class SecondLevelCache {
+
+    /** Query-cache region of the per-customer account finders; dropped with any JDBC balance write. */
+    public static final String ACCOUNT_QUERIES = "org.bank.entities.Account.byCustomer";
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    @Autowired
+    public SecondLevelCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    public boolean isEnabled() {
+        return sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled();
+    }
+
+    /** Drops the cached accounts now and again when the caller's transaction (if any) completes. */
+    public void evictAccounts(Collection<Long> accountIds) {
+        if (accountIds.isEmpty() || !isEnabled()) return;
+
+        List<Long> ids = List.copyOf(accountIds);
+        evictAccountsNow(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictAccountsNow(ids);
+                }
+            });
+        }
+    }
+
+    /** After customer columns were changed with plain JDBC; the customer finders use the default query region. */
+    public void evictCustomers() {
+        if (!isEnabled()) return;
+        cache().evictEntityData(Customer.class);
+        cache().evictDefaultQueryRegion();
+    }
+
+    private void evictAccountsNow(List<Long> ids) {
+        Cache cache = cache();
+        for (Long id : ids) {
+            cache.evictEntityData(Account.class, id);
+        }
+        cache.evictQueryRegion(ACCOUNT_QUERIES);
+    }
+
+    private Cache cache() {
+        return sessionFactory.getCache();
+    }
+}
@@ -4,6 +4,7 @@ import org.bank.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -56,6 +57,10 @@ public class SecurityConfig {
                 .requestMatchers("/", "/login", "/register", "/register/**",
                         "/css/**", "/js/**", "/images/**").permitAll()
 
+                // ✅ Actuator: health is public, everything else (metrics, Prometheus scrape) is admin-only
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                 // ✅ Role-based endpoints
                 .requestMatchers("/admin/**").hasRole("ADMIN")
                 .requestMatchers("/customers/**", "/accounts/**", "/transactions/**", "/dashboard").hasRole("USER")
@@ -70,6 +75,8 @@ public class SecurityConfig {
                 .failureUrl("/login?error")
                 .permitAll()
             )
+            // Scrapers authenticate with HTTP Basic; browsers still get the login page
+            .httpBasic(Customizer.withDefaults())
             .logout(logout -> logout
                 .logoutUrl("/logout")
                 .logoutSuccessUrl("/login?logout")
@@ -0,0 +1,26 @@
+package org.bank.config;
+
+import org.bank.service.CustomerContextService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CustomerContextService customerContextService;
+
+    @Autowired
+    public WebConfig(CustomerContextService customerContextService) {
+        this.customerContextService = customerContextService;
+    }
+
+    // @CurrentCustomer controller parameters
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new CurrentCustomerArgumentResolver(customerContextService));
+    }
+}
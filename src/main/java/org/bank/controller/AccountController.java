@@ -1,13 +1,14 @@
 package org.bank.controller;
 
+import jakarta.servlet.http.HttpSession;
+import org.bank.config.CurrentCustomer;
+import org.bank.dto.AccountSummary;
+import org.bank.dto.CustomerContext;
 import org.bank.entities.Account;
-import org.bank.entities.Customer;
-import org.bank.entities.User;
 import org.bank.service.AccountService;
+import org.bank.service.CustomerContextService;
 import org.bank.service.CustomerService;
-import org.bank.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -21,21 +22,21 @@ public class AccountController {
 
     private final AccountService accountService;
     private final CustomerService customerService;
-    private final UserService userService;
+    private final CustomerContextService customerContextService;
 
     @Autowired
     public AccountController(AccountService accountService,
                              CustomerService customerService,
-                             UserService userService) {
+                             CustomerContextService customerContextService) {
         this.accountService = accountService;
         this.customerService = customerService;
-        this.userService = userService;
+        this.customerContextService = customerContextService;
     }
 
     // ================== OPEN ACCOUNT ==================
     @GetMapping("/open")
-    public String showOpenAccountForm(Model model, Authentication authentication) {
-        Customer customer = getCustomerFromAuth(authentication);
+    public String showOpenAccountForm(Model model, @CurrentCustomer CustomerContext ctx) {
+        CustomerContext customer = requireCustomer(ctx);
 
         Account formAccount = new Account();
         formAccount.setBalance(BigDecimal.ZERO);
@@ -43,19 +44,20 @@ public class AccountController {
         model.addAttribute("account", formAccount);
         model.addAttribute("activePage", "open_account");
         model.addAttribute("customer", customer);
-        model.addAttribute("user", customer.getUser()); // ✅ Added
+        model.addAttribute("user", customer); // ✅ Added
 
         return "open_account";
     }
 
     @PostMapping("/open")
     public String openAccount(@ModelAttribute("account") Account account,
-                              Authentication authentication,
+                              @CurrentCustomer CustomerContext ctx,
+                              HttpSession session,
                               Model model) {
-        Customer customer = getCustomerFromAuth(authentication);
+        CustomerContext customer = requireCustomer(ctx);
 
         Account toSave = new Account();
-        toSave.setCustomer(customer);
+        toSave.setCustomer(customerService.getReference(customer.customerId()));
 
         if (account.getAccountType() == null || account.getAccountType().isBlank()) {
             throw new IllegalArgumentException("Account type is required");
@@ -69,12 +71,14 @@ public class AccountController {
         }
 
         accountService.save(toSave);
+        // The new account must show up in the cached account ids
+        customerContextService.refresh(session);
 
         // ✅ Add model attributes again for reload page
         model.addAttribute("account", new Account());
         model.addAttribute("activePage", "open_account");
         model.addAttribute("customer", customer);
-        model.addAttribute("user", customer.getUser());
+        model.addAttribute("user", customer);
         model.addAttribute("success", "Account created successfully!");
 
         return "open_account";
@@ -82,60 +86,60 @@ public class AccountController {
 
     // ================== SAVINGS ACCOUNT ==================
     @GetMapping("/savings")
-    public String viewSavingsAccounts(Model model, Authentication authentication) {
-        Customer customer = getCustomerFromAuth(authentication);
-        List<Account> allAccounts = accountService.findByCustomer(customer);
+    public String viewSavingsAccounts(Model model, @CurrentCustomer CustomerContext ctx) {
+        CustomerContext customer = requireCustomer(ctx);
+        List<AccountSummary> allAccounts = accountService.findSummariesByCustomerId(customer.customerId());
 
-        List<Account> savingsAccounts = allAccounts.stream()
-                .filter(a -> "SAVINGS".equalsIgnoreCase(a.getAccountType()))
+        List<AccountSummary> savingsAccounts = allAccounts.stream()
+                .filter(a -> "SAVINGS".equalsIgnoreCase(a.accountType()))
                 .toList();
 
         model.addAttribute("accounts", savingsAccounts);
         model.addAttribute("activePage", "savings");
         model.addAttribute("customer", customer);
-        model.addAttribute("user", customer.getUser());
+        model.addAttribute("user", customer);
 
         return "savings_account";
     }
 
     // ================== CURRENT ACCOUNT ==================
     @GetMapping("/current")
-    public String viewCurrentAccounts(Model model, Authentication authentication) {
-        Customer customer = getCustomerFromAuth(authentication);
-        List<Account> allAccounts = accountService.findByCustomer(customer);
+    public String viewCurrentAccounts(Model model, @CurrentCustomer CustomerContext ctx) {
+        CustomerContext customer = requireCustomer(ctx);
+        List<AccountSummary> allAccounts = accountService.findSummariesByCustomerId(customer.customerId());
 
-        List<Account> currentAccounts = allAccounts.stream()
-                .filter(a -> "CURRENT".equalsIgnoreCase(a.getAccountType()))
+        List<AccountSummary> currentAccounts = allAccounts.stream()
+                .filter(a -> "CURRENT".equalsIgnoreCase(a.accountType()))
                 .toList();
 
         model.addAttribute("accounts", currentAccounts);
         model.addAttribute("activePage", "current");
         model.addAttribute("customer", customer);
-        model.addAttribute("user", customer.getUser());
+        model.addAttribute("user", customer);
 
         return "current_account";
     }
 
     // ================== VIEW BALANCE ==================
     @GetMapping("/balance")
-    public String viewBalance(Model model, Authentication authentication) {
-        Customer customer = getCustomerFromAuth(authentication);
-        List<Account> accounts = accountService.findByCustomer(customer);
+    public String viewBalance(Model model, @CurrentCustomer CustomerContext ctx) {
+        CustomerContext customer = requireCustomer(ctx);
+        // Summaries carry the full balance of sharded accounts (row plus slots)
+        List<AccountSummary> accounts = accountService.findSummariesByCustomerId(customer.customerId());
 
         model.addAttribute("accounts", accounts);
         model.addAttribute("activePage", "balance");
         model.addAttribute("customer", customer);
-        model.addAttribute("user", customer.getUser());
+        model.addAttribute("user", customer);
 
         return "view_balance";
     }
 
     // ================== Helper ==================
-    private Customer getCustomerFromAuth(Authentication authentication) {
-        String username = authentication.getName();
-        User user = userService.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
-        return customerService.findByUser(user)
-                .orElseThrow(() -> new IllegalArgumentException("Customer not found for user: " + username));
+    private CustomerContext requireCustomer(CustomerContext ctx) {
+        if (ctx == null || !ctx.hasCustomer()) {
+            throw new IllegalArgumentException("Customer not found for user: " + (ctx == null ? null : ctx.username()));
+        }
+        return ctx;
     }
 }
@@ -1,21 +1,52 @@
 package org.bank.controller;
 
+import org.bank.dto.AccountSummary;
+import org.bank.dto.AdminOverview;
+import org.bank.dto.CustomerSummary;
+import org.bank.dto.TransactionSummary;
 import org.bank.entities.Customer;
 import org.bank.entities.User;
 import org.bank.entities.Account;
-import org.bank.entities.Transaction;
 import org.bank.service.CustomerService;
 import org.bank.service.AuthService;
 import org.bank.service.AccountService;
 import org.bank.service.BankTransactionService;
+import org.bank.service.BulkPaymentService;
+import org.bank.service.HotAccountBalances;
+import org.bank.service.InterestAccrualService;
+import org.bank.service.StatementService;
+import org.bank.service.TransactionExportService;
+import org.bank.service.PostingContentionMetrics;
+import org.bank.service.UserCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.util.Collections;
-import java.util.List;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 @Controller
 @RequestMapping("/admin")
@@ -25,21 +56,55 @@ public class AdminController {
     private final AuthService authService;
     private final AccountService accountService;
     private final BankTransactionService transactionService;
+    private final PostingContentionMetrics contentionMetrics;
+    private final BulkPaymentService bulkPaymentService;
+    private final UserCache userCache;
+    private final HotAccountBalances hotAccounts;
+    private final TransactionExportService exportService;
+    private final StatementService statementService;
+    private final InterestAccrualService interestAccrualService;
+
+    private static final int PAGE_SIZE = 20;
+    private static final Set<String> CUSTOMER_SORTS = Set.of("customerId", "name", "email");
+    private static final Set<String> ACCOUNT_SORTS = Set.of("accountId", "accountType", "balance");
+    private static final Set<String> TRANSACTION_SORTS = Set.of("transactionId", "timestamp", "amount");
 
     @Autowired
     public AdminController(CustomerService customerService,
                            AuthService authService,
                            AccountService accountService,
-                           BankTransactionService transactionService) {
+                           BankTransactionService transactionService,
+                           PostingContentionMetrics contentionMetrics,
+                           BulkPaymentService bulkPaymentService,
+                           UserCache userCache,
+                           HotAccountBalances hotAccounts,
+                           TransactionExportService exportService,
+                           StatementService statementService,
+                           InterestAccrualService interestAccrualService) {
         this.customerService = customerService;
         this.authService = authService;
         this.accountService = accountService;
         this.transactionService = transactionService;
+        this.contentionMetrics = contentionMetrics;
+        this.bulkPaymentService = bulkPaymentService;
+        this.userCache = userCache;
+        this.hotAccounts = hotAccounts;
+        this.exportService = exportService;
+        this.statementService = statementService;
+        this.interestAccrualService = interestAccrualService;
     }
 
     // ================== ADMIN DASHBOARD ==================
+    // Header figures are aggregate queries; each table is one page of a DTO projection.
+    // Paging/sorting per table: customers_page, customers_size, customers_sort=name,asc (same for accounts_/transactions_)
     @GetMapping("/dashboard")
-    public String adminDashboard(Model model, Authentication authentication) {
+    public String adminDashboard(@Qualifier("customers") @PageableDefault(size = PAGE_SIZE, sort = "name") Pageable customerPage,
+                                 @Qualifier("accounts") @PageableDefault(size = PAGE_SIZE, sort = "accountId") Pageable accountPage,
+                                 @Qualifier("transactions") @PageableDefault(size = PAGE_SIZE, sort = "transactionId", direction = Sort.Direction.DESC) Pageable transactionPage,
+                                 @RequestParam(value = "q", required = false) String search,
+                                 @RequestParam(value = "accountType", required = false) String accountType,
+                                 @RequestParam(value = "transactionType", required = false) String transactionType,
+                                 Model model, Authentication authentication, HttpServletRequest request) {
         String username = authentication.getName();
         User user = authService.findByUsername(username).orElse(null);
 
@@ -47,17 +112,33 @@ public class AdminController {
             return "redirect:/dashboard"; // fallback for non-admins
         }
 
+        model.addAttribute("overview", new AdminOverview(
+                customerService.count(),
+                accountService.count(),
+                accountService.totalBalance(),
+                transactionService.count()));
+
         // Customers
-        List<Customer> customers = customerService.findAll();
-        model.addAttribute("customers", customers != null ? customers : Collections.emptyList());
+        Page<CustomerSummary> customers = customerService.findSummaries(search,
+                sortable(customerPage, Sort.by("name"), CUSTOMER_SORTS));
+        model.addAttribute("customers", customers);
+        addPageLinks(model, request, "customers", customers);
 
         // Accounts
-        List<Account> accounts = accountService.findAll();
-        model.addAttribute("accounts", accounts != null ? accounts : Collections.emptyList());
+        Page<AccountSummary> accounts = accountService.findSummaries(accountType,
+                sortable(accountPage, Sort.by("accountId"), ACCOUNT_SORTS));
+        model.addAttribute("accounts", accounts);
+        addPageLinks(model, request, "accounts", accounts);
 
         // Transactions
-        List<Transaction> transactions = transactionService.findAll();
-        model.addAttribute("transactions", transactions != null ? transactions : Collections.emptyList());
+        Slice<TransactionSummary> transactions = transactionService.findSummaries(transactionType,
+                sortable(transactionPage, Sort.by(Sort.Direction.DESC, "transactionId"), TRANSACTION_SORTS));
+        model.addAttribute("transactions", transactions);
+        addPageLinks(model, request, "transactions", transactions);
+
+        model.addAttribute("q", search);
+        model.addAttribute("accountType", accountType);
+        model.addAttribute("transactionType", transactionType);
 
         // Admin user info
         model.addAttribute("user", user);
@@ -69,8 +150,11 @@ public class AdminController {
 
     // ================== CUSTOMER CRUD ==================
     @GetMapping("/customers")
-    public String listCustomers(Model model) {
-        List<Customer> customers = customerService.findAll();
+    public String listCustomers(@PageableDefault(size = PAGE_SIZE, sort = "name") Pageable pageable,
+                                @RequestParam(value = "q", required = false) String search,
+                                Model model) {
+        Page<CustomerSummary> customers = customerService.findSummaries(search,
+                sortable(pageable, Sort.by("name"), CUSTOMER_SORTS));
         model.addAttribute("customers", customers);
         model.addAttribute("activePage", "customers");
         return "customers"; // remove admin/ prefix
@@ -111,8 +195,11 @@ public class AdminController {
 
     // ================== ACCOUNT CRUD ==================
     @GetMapping("/accounts")
-    public String listAccounts(Model model) {
-        List<Account> accounts = accountService.findAll();
+    public String listAccounts(@PageableDefault(size = PAGE_SIZE, sort = "accountId") Pageable pageable,
+                               @RequestParam(value = "accountType", required = false) String accountType,
+                               Model model) {
+        Page<AccountSummary> accounts = accountService.findSummaries(accountType,
+                sortable(pageable, Sort.by("accountId"), ACCOUNT_SORTS));
         model.addAttribute("accounts", accounts);
         model.addAttribute("activePage", "accounts");
         return "accounts"; // remove admin/ prefix
@@ -143,10 +230,133 @@ public class AdminController {
 
     // ================== TRANSACTIONS (READ-ONLY) ==================
     @GetMapping("/transactions")
-    public String listTransactions(Model model) {
-        List<Transaction> transactions = transactionService.findAll();
+    public String listTransactions(@PageableDefault(size = PAGE_SIZE, sort = "transactionId", direction = Sort.Direction.DESC) Pageable pageable,
+                                   @RequestParam(value = "transactionType", required = false) String transactionType,
+                                   Model model) {
+        Slice<TransactionSummary> transactions = transactionService.findSummaries(transactionType,
+                sortable(pageable, Sort.by(Sort.Direction.DESC, "transactionId"), TRANSACTION_SORTS));
         model.addAttribute("transactions", transactions);
         model.addAttribute("activePage", "transactions");
         return "transactions"; // remove admin/ prefix
     }
+
+    // Whole ledger by id, streamed as NDJSON (default) or ?format=csv
+    @GetMapping("/transactions/export")
+    public void exportTransactions(@RequestParam(value = "format", required = false) String format,
+                                   HttpServletResponse response) throws IOException {
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.fromParam(format);
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"ledger." + exportFormat.extension() + "\"");
+        exportService.exportLedger(exportFormat, response.getOutputStream());
+    }
+
+    // ================== POSTING CONTENTION ==================
+    @GetMapping("/metrics/posting")
+    @ResponseBody
+    public Map<String, Object> postingMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("mode", transactionService.getPostingMode());
+        metrics.put("concurrency", transactionService.getConcurrency());
+        metrics.putAll(contentionMetrics.snapshot());
+        return metrics;
+    }
+
+    @GetMapping("/metrics/user-cache")
+    @ResponseBody
+    public Map<String, Object> userCacheMetrics() {
+        return userCache.snapshot();
+    }
+
+    // ================== HOT ACCOUNTS ==================
+    // Spread an account's credits over `slots` balance slots; 0 or 1 folds them back into the account
+    @PostMapping("/accounts/{id}/balance-slots")
+    @ResponseBody
+    public Map<String, Object> configureBalanceSlots(@PathVariable Long id, @RequestParam int slots) {
+        hotAccounts.configure(id, slots);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("accountId", id);
+        result.put("balanceSlots", slots > 1 ? slots : 0);
+        result.put("sharded", hotAccounts.isSharded(id));
+        return result;
+    }
+
+    // ================== MONTHLY STATEMENTS ==================
+    // Files land under bank.statements.dir; a month that was already generated only fills gaps
+    @PostMapping("/statements")
+    @ResponseBody
+    public StatementService.StatementJob generateStatements(@RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        return statementService.start(month);
+    }
+
+    @GetMapping("/statements")
+    @ResponseBody
+    public Iterable<StatementService.StatementJob> statementJobs() {
+        return statementService.findAll();
+    }
+
+    @GetMapping("/statements/{month}")
+    public ResponseEntity<StatementService.StatementJob> statementJob(@PathVariable @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        return ResponseEntity.of(statementService.find(month));
+    }
+
+    // ================== INTEREST ==================
+    // Accrue one (finished) day's savings interest now; a day that was already accrued is a no-op
+    @PostMapping("/interest/accrue")
+    @ResponseBody
+    public InterestAccrualService.AccrualResult accrueInterest(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return interestAccrualService.accrue(date);
+    }
+
+    // ================== BULK PAYMENTS ==================
+    // CSV upload of from,to,amount rows; processed in the background, poll the job for progress
+    @PostMapping("/payments/bulk")
+    @ResponseBody
+    public BulkPaymentService.BulkPaymentJob uploadBulkPayments(@RequestParam("file") MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("Bulk payment file is empty");
+        }
+        return bulkPaymentService.start(file.getInputStream(), file.getOriginalFilename());
+    }
+
+    @GetMapping("/payments/bulk")
+    @ResponseBody
+    public Iterable<BulkPaymentService.BulkPaymentJob> bulkPaymentJobs() {
+        return bulkPaymentService.findAll();
+    }
+
+    @GetMapping("/payments/bulk/{jobId}")
+    public ResponseEntity<BulkPaymentService.BulkPaymentJob> bulkPaymentJob(@PathVariable String jobId) {
+        return ResponseEntity.of(bulkPaymentService.find(jobId));
+    }
+
+    @GetMapping("/payments/bulk/{jobId}/report")
+    public ResponseEntity<Resource> bulkPaymentReport(@PathVariable String jobId) {
+        return bulkPaymentService.find(jobId)
+                .map(job -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("text/csv"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + jobId + "-report.csv\"")
+                        .<Resource>body(new FileSystemResource(job.reportPath())))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // ================== PAGING HELPERS ==================
+    // Only whitelisted properties reach ORDER BY; anything else falls back to the default order
+    private static Pageable sortable(Pageable pageable, Sort fallback, Set<String> allowed) {
+        boolean ok = pageable.getSort().isSorted()
+                && pageable.getSort().stream().allMatch(order -> allowed.contains(order.getProperty()));
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), ok ? pageable.getSort() : fallback);
+    }
+
+    // Prev/next links that keep the other tables' paging and the filters as they are
+    private static void addPageLinks(Model model, HttpServletRequest request, String prefix, Slice<?> slice) {
+        UriComponentsBuilder current = UriComponentsBuilder.fromPath(request.getRequestURI())
+                .query(request.getQueryString());
+        String param = prefix + "_page";
+        model.addAttribute(prefix + "PrevUrl", slice.hasPrevious()
+                ? current.cloneBuilder().replaceQueryParam(param, slice.getNumber() - 1).build().toUriString() : null);
+        model.addAttribute(prefix + "NextUrl", slice.hasNext()
+                ? current.cloneBuilder().replaceQueryParam(param, slice.getNumber() + 1).build().toUriString() : null);
+    }
 }
@@ -1,30 +1,49 @@
 package org.bank.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.bank.config.CurrentCustomer;
+import org.bank.dto.CustomerContext;
 import org.bank.entities.Customer;
-import org.bank.entities.User;
 import org.bank.repository.CustomerRepository;
-import org.bank.repository.UserRepository;
+import org.bank.service.CustomerContextService;
+import org.bank.service.ProfilePhotoProcessor;
+import org.bank.service.ProfilePhotoStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.security.Principal;
-import java.util.Optional;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 @Controller
 public class ProfileController {
 
     private final CustomerRepository customerRepository;
-    private final UserRepository userRepository;
+    private final CustomerContextService customerContextService;
+    private final ProfilePhotoStore photoStore;
+    private final ProfilePhotoProcessor photoProcessor;
 
     @Autowired
     public ProfileController(CustomerRepository customerRepository,
-                             UserRepository userRepository) {
+                             CustomerContextService customerContextService,
+                             ProfilePhotoStore photoStore,
+                             ProfilePhotoProcessor photoProcessor) {
         this.customerRepository = customerRepository;
-        this.userRepository = userRepository;
+        this.customerContextService = customerContextService;
+        this.photoStore = photoStore;
+        this.photoProcessor = photoProcessor;
     }
 
     /**
@@ -32,22 +51,16 @@ public class ProfileController {
      * URL: GET /profile/view
      */
     @GetMapping("/profile/view")
-    public String viewProfile(Model model, Principal principal) {
-        // principal may be null in some testing contexts; handle defensively
-        User user = null;
+    public String viewProfile(Model model, @CurrentCustomer CustomerContext ctx) {
+        // ctx may be null in some testing contexts; handle defensively
         Customer customer = null;
 
-        if (principal != null && principal.getName() != null) {
-            Optional<User> optionalUser = userRepository.findByUsername(principal.getName());
-            if (optionalUser.isPresent()) {
-                user = optionalUser.get();
-                Optional<Customer> optionalCustomer = customerRepository.findByUser(user);
-                customer = optionalCustomer.orElse(null);
-            }
+        if (ctx != null && ctx.hasCustomer()) {
+            customer = customerRepository.findById(ctx.customerId()).orElse(null);
         }
 
         // Add to model even if null – templates should render safely
-        model.addAttribute("user", user);
+        model.addAttribute("user", ctx);
         model.addAttribute("customer", customer);
 
         return "view_profile";
@@ -58,20 +71,14 @@ public class ProfileController {
      * Uses the same template name you already have: updateprofile.html
      */
     @GetMapping("/profile/update")
-    public String showUpdateProfilePage(Model model, Principal principal) {
-        User user = null;
+    public String showUpdateProfilePage(Model model, @CurrentCustomer CustomerContext ctx) {
         Customer customer = null;
 
-        if (principal != null && principal.getName() != null) {
-            Optional<User> optionalUser = userRepository.findByUsername(principal.getName());
-            if (optionalUser.isPresent()) {
-                user = optionalUser.get();
-                Optional<Customer> optionalCustomer = customerRepository.findByUser(user);
-                customer = optionalCustomer.orElse(null);
-            }
+        if (ctx != null && ctx.hasCustomer()) {
+            customer = customerRepository.findById(ctx.customerId()).orElse(null);
         }
 
-        model.addAttribute("user", user);
+        model.addAttribute("user", ctx);
         model.addAttribute("customer", customer);
 
         return "updateprofile";
@@ -79,28 +86,25 @@ public class ProfileController {
 
     /**
      * Update profile (POST /profile/update)
-     * Accepts optional file upload "profileImage". Saves data automatically to DB.
+     * Accepts optional file upload "profileImage"; it is spooled to disk here and resized in the background.
      */
     @PostMapping("/profile/update")
     public String updateProfile(@ModelAttribute Customer updatedCustomer,
                                 @RequestParam(value = "profileImage", required = false) MultipartFile file,
-                                Principal principal,
+                                @CurrentCustomer CustomerContext ctx,
+                                HttpSession session,
                                 Model model) throws IOException {
 
-        if (principal == null || principal.getName() == null) {
+        if (ctx == null) {
             // Not authenticated — redirect to login (adjust if your auth flow differs)
             return "redirect:/login";
         }
 
-        Optional<User> optionalUser = userRepository.findByUsername(principal.getName());
-        if (optionalUser.isEmpty()) {
-            return "redirect:/login";
-        }
-
-        User user = optionalUser.get();
-        Optional<Customer> optionalCustomer = customerRepository.findByUser(user);
-        Customer customer = optionalCustomer.orElse(null);
+        Customer customer = ctx.hasCustomer()
+                ? customerRepository.findById(ctx.customerId()).orElse(null)
+                : null;
 
+        String error = null;
         if (customer != null) {
             // update fields only when provided (basic overwrite)
             customer.setName(updatedCustomer.getName());
@@ -108,38 +112,144 @@ public class ProfileController {
             customer.setPhone(updatedCustomer.getPhone());
             customer.setEmail(updatedCustomer.getEmail());
 
+            customerRepository.save(customer);
+            // Name is part of the cached context; the photo follows once it has been processed
+            customerContextService.refresh(session);
+
             if (file != null && !file.isEmpty()) {
-                // save bytes in DB field customer.profilePhoto (byte[])
-                customer.setProfilePhoto(file.getBytes());
+                error = submitPhoto(customer.getCustomerId(), file);
             }
-
-            customerRepository.save(customer);
         }
 
         // put updated values back into model for the template
-        model.addAttribute("user", user);
+        model.addAttribute("user", ctx);
         model.addAttribute("customer", customer);
-        model.addAttribute("success", true);
+        model.addAttribute("success", error == null);
+        model.addAttribute("error", error);
 
         // return update view (you can redirect if you'd prefer flash attributes + redirect)
         return "updateprofile";
     }
 
     /**
-     * Serve profile photo bytes from the DB
-     * GET /profile/photo/{id}
+     * Serve a profile photo from the photo store
+     * GET /profile/photo/{id}?size=thumb|display|original (default display)
+     *
+     * Falls back to the original while the variants are still being rendered (or for photos that
+     * could not be decoded). The content hash plus variant is a strong ETag, so browsers revalidate with If-None-Match and get a
+     * bodiless 304 until the photo changes. Single byte ranges are honoured (206/416); the body
+     * is handed to Tomcat's sendfile when the connector supports it, else FileChannel.transferTo.
      */
     @GetMapping("/profile/photo/{id}")
-    @ResponseBody
-    public org.springframework.http.ResponseEntity<byte[]> getProfilePhoto(@PathVariable("id") Long id) {
-        Optional<Customer> optCustomer = customerRepository.findById(id);
-
-        if (optCustomer.isPresent() && optCustomer.get().getProfilePhoto() != null) {
-            return org.springframework.http.ResponseEntity.ok()
-                    .contentType(org.springframework.http.MediaType.IMAGE_JPEG)
-                    .body(optCustomer.get().getProfilePhoto());
-        } else {
-            return org.springframework.http.ResponseEntity.notFound().build();
+    public void getProfilePhoto(@PathVariable("id") Long id,
+                                @RequestParam(value = "size", defaultValue = ProfilePhotoProcessor.DISPLAY) String size,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        Customer customer = customerRepository.findById(id).orElse(null);
+        String hash = customer == null ? null : customer.getProfilePhotoHash();
+        if (!photoStore.exists(hash)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Path file = photoStore.path(hash);
+        String contentType = customer.getProfilePhotoType() != null ? customer.getProfilePhotoType() : "image/jpeg";
+        String etag = "\"" + hash + "\"";
+        if (ProfilePhotoProcessor.THUMB.equals(size) || ProfilePhotoProcessor.DISPLAY.equals(size)) {
+            Path variant = photoStore.variantPath(hash, size);
+            if (Files.isRegularFile(variant)) {
+                file = variant;
+                contentType = "image/jpeg";
+                etag = "\"" + hash + "-" + size + "\"";
+            }
+        }
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = Files.size(file);
+        long start = 0;
+        long end = length - 1;
+
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of(); // malformed Range headers are ignored
+            }
+            // Multiple ranges are rare for images; a full 200 is a valid answer to them
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod())) return;
+
+        sendFile(request, response, file, start, count);
+    }
+
+    // ================== HELPER ==================
+    // Only spools the upload (Tomcat can usually rename its temp file), so this is O(1) in the photo size
+    private String submitPhoto(Long customerId, MultipartFile file) throws IOException {
+        if (file.getSize() > photoStore.maxBytes()) {
+            return "Photo is larger than " + photoStore.maxBytes() + " bytes";
+        }
+        Path spool = photoStore.newSpoolFile();
+        file.transferTo(spool.toFile());
+        return photoProcessor.submit(customerId, spool) ? null : "Photo processing is busy, please try again";
+    }
+
+    private static void sendFile(HttpServletRequest request, HttpServletResponse response,
+                                 Path file, long start, long count) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            // Tomcat writes the file after the handler returns, straight from the page cache; end is exclusive
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", start);
+            request.setAttribute("org.apache.tomcat.sendfile.end", start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) return true;
         }
+        return false;
     }
 }
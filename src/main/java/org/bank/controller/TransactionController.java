@@ -1,80 +1,144 @@
 package org.bank.controller;
 
-import org.bank.entities.Account;
-import org.bank.entities.Customer;
-import org.bank.entities.User;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.bank.config.CurrentCustomer;
+import org.bank.dto.AccountSummary;
+import org.bank.dto.CustomerContext;
+import org.bank.dto.DailyBalance;
 import org.bank.service.AccountService;
-import org.bank.service.AuthService;
-import org.bank.service.CustomerService;
+import org.bank.service.BalanceHistoryService;
 import org.bank.service.BankTransactionService;
+import org.bank.service.CustomerContextService;
+import org.bank.service.IdempotencyService;
+import org.bank.service.InsufficientBalanceException;
+import org.bank.service.TransactionExportService;
+import org.bank.service.TransactionPage;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Controller
 @RequestMapping("/transactions")
 public class TransactionController {
 
     private final BankTransactionService transactionService;
-    private final AuthService authService;
     private final AccountService accountService;
-    private final CustomerService customerService;
+    private final CustomerContextService customerContextService;
+    private final IdempotencyService idempotencyService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final TransactionExportService exportService;
 
     @Autowired
     public TransactionController(BankTransactionService transactionService,
-                                 AuthService authService,
                                  AccountService accountService,
-                                 CustomerService customerService) {
+                                 CustomerContextService customerContextService,
+                                 IdempotencyService idempotencyService,
+                                 BalanceHistoryService balanceHistoryService,
+                                 TransactionExportService exportService) {
         this.transactionService = transactionService;
-        this.authService = authService;
         this.accountService = accountService;
-        this.customerService = customerService;
+        this.customerContextService = customerContextService;
+        this.idempotencyService = idempotencyService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.exportService = exportService;
     }
 
     // ================== TRANSACTION HISTORY ==================
     @GetMapping("/transactionhistory")
-    public String listTransactions(Model model, Authentication authentication) {
-        User user = getUser(authentication);
-        if (user == null) return "redirect:/login";
+    public String listTransactions(@RequestParam(value = "cursor", required = false) String cursor,
+                                   @RequestParam(value = "size", defaultValue = "50") int size,
+                                   Model model, @CurrentCustomer CustomerContext ctx) {
+        if (ctx == null || !ctx.hasCustomer()) return "redirect:/login";
 
-        Customer customer = customerService.findByUserId(user.getId());
-        if (customer == null) return "redirect:/login";
-
-        List<Account> accounts = accountService.findByCustomerId(customer.getCustomerId());
-        List<org.bank.entities.Transaction> transactions = new ArrayList<>();
-
-        for (Account account : accounts) {
-            transactions.addAll(transactionService.findByAccountId(account.getAccountId()));
+        TransactionPage page;
+        try {
+            page = transactionService.findHistoryPage(ctx.accountIds(), cursor, size);
+        } catch (IllegalArgumentException e) {
+            return "redirect:/transactions/transactionhistory";
         }
 
-        model.addAttribute("transactions", transactions);
-        model.addAttribute("customer", customer);
-        model.addAttribute("user", user);
+        model.addAttribute("transactions", page.transactions());
+        model.addAttribute("nextCursor", page.nextCursor());
+        model.addAttribute("pageSize", size);
+        model.addAttribute("customer", ctx);
+        model.addAttribute("user", ctx);
         model.addAttribute("activePage", "transactionhistory");
 
         return "transactionhistory";
     }
 
+    // ================== EXPORT ==================
+    // Full history of the customer's accounts, streamed as NDJSON (default) or ?format=csv
+    @GetMapping("/export")
+    public void exportHistory(@RequestParam(value = "format", required = false) String format,
+                              @CurrentCustomer CustomerContext ctx,
+                              HttpServletResponse response) throws IOException {
+        if (ctx == null || !ctx.hasCustomer()) {
+            response.sendRedirect("/login");
+            return;
+        }
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.fromParam(format);
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"transactions." + exportFormat.extension() + "\"");
+        exportService.exportHistory(ctx.accountIds(), exportFormat, response.getOutputStream());
+    }
+
+    // ================== BALANCE HISTORY ==================
+    // JSON for charts: balance at an instant, and one closing balance per day
+    @GetMapping("/balance-at")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> balanceAt(@RequestParam Long accountId,
+                                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+                                                         @CurrentCustomer CustomerContext ctx,
+                                                         HttpSession session) {
+        if (!ownsAccount(ctx, accountId, session)) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("accountId", accountId);
+        body.put("at", at);
+        body.put("balance", balanceHistoryService.balanceAt(accountId, at));
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping("/balance-series")
+    @ResponseBody
+    public ResponseEntity<List<DailyBalance>> balanceSeries(@RequestParam Long accountId,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            @CurrentCustomer CustomerContext ctx,
+                                                            HttpSession session) {
+        if (!ownsAccount(ctx, accountId, session)) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        return ResponseEntity.ok(balanceHistoryService.dailyBalances(accountId, from, to));
+    }
+
     // ================== DEPOSIT ==================
     @GetMapping("/deposit")
-    public String showDepositForm(Model model, Authentication authentication) {
-        User user = getUser(authentication);
-        if (user == null) return "redirect:/login";
+    public String showDepositForm(Model model, @CurrentCustomer CustomerContext ctx) {
+        if (ctx == null || !ctx.hasCustomer()) return "redirect:/login";
 
-        Customer customer = customerService.findByUserId(user.getId());
-        if (customer == null) return "redirect:/login";
-
-        List<Account> accounts = accountService.findByCustomerId(customer.getCustomerId());
+        List<AccountSummary> accounts = accountService.findSummariesByCustomerId(ctx.customerId());
         model.addAttribute("accounts", accounts);
-        model.addAttribute("customer", customer);
-        model.addAttribute("user", user);
+        model.addAttribute("customer", ctx);
+        model.addAttribute("user", ctx);
         model.addAttribute("activePage", "deposit");
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
 
         return "deposit_form";
     }
@@ -82,33 +146,41 @@ public class TransactionController {
     @PostMapping("/deposit")
     public String processDeposit(@RequestParam Long accountId,
                                  @RequestParam BigDecimal amount,
-                                 Authentication authentication) {
-        User user = getUser(authentication);
-        if (user == null) return "redirect:/login";
-
+                                 @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader,
+                                 @CurrentCustomer CustomerContext ctx,
+                                 HttpSession session) {
+        if (ctx == null) return "redirect:/login";
+        if (!ownsAccount(ctx, accountId, session)) return "redirect:/transactions/deposit?error=Account+not+found";
+
+        // Rejections are the request's answer and get replayed; anything else (a conflict that
+        // outlasted its retries, an outage) is thrown past the idempotency key so a retry runs again
         try {
-            transactionService.deposit(accountId, amount);
+            return idempotencyService.execute(ctx.username(), keyOf(idempotencyHeader, idempotencyKey), "deposit", () -> {
+                try {
+                    transactionService.deposit(accountId, amount);
+                } catch (IllegalArgumentException | InsufficientBalanceException e) {
+                    return "redirect:/transactions/deposit?error=" + e.getMessage();
+                }
+
+                return "redirect:/dashboard?success=Deposit+completed";
+            });
         } catch (RuntimeException e) {
             return "redirect:/transactions/deposit?error=" + e.getMessage();
         }
-
-        return "redirect:/dashboard?success=Deposit+completed";
     }
 
     // ================== WITHDRAW ==================
     @GetMapping("/withdraw")
-    public String showWithdrawForm(Model model, Authentication authentication) {
-        User user = getUser(authentication);
-        if (user == null) return "redirect:/login";
+    public String showWithdrawForm(Model model, @CurrentCustomer CustomerContext ctx) {
+        if (ctx == null || !ctx.hasCustomer()) return "redirect:/login";
 
-        Customer customer = customerService.findByUserId(user.getId());
-        if (customer == null) return "redirect:/login";
-
-        List<Account> accounts = accountService.findByCustomerId(customer.getCustomerId());
+        List<AccountSummary> accounts = accountService.findSummariesByCustomerId(ctx.customerId());
         model.addAttribute("accounts", accounts);
-        model.addAttribute("customer", customer);
-        model.addAttribute("user", user);
+        model.addAttribute("customer", ctx);
+        model.addAttribute("user", ctx);
         model.addAttribute("activePage", "withdraw");
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
 
         return "withdraw_form";
     }
@@ -116,36 +188,41 @@ public class TransactionController {
     @PostMapping("/withdraw")
     public String processWithdraw(@RequestParam Long accountId,
                                   @RequestParam BigDecimal amount,
-                                  Authentication authentication) {
-        User user = getUser(authentication);
-        if (user == null) return "redirect:/login";
+                                  @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                                  @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader,
+                                  @CurrentCustomer CustomerContext ctx,
+                                  HttpSession session) {
+        if (ctx == null) return "redirect:/login";
+        if (!ownsAccount(ctx, accountId, session)) return "redirect:/transactions/withdraw?error=Account+not+found";
 
         try {
-            transactionService.withdraw(accountId, amount);
+            return idempotencyService.execute(ctx.username(), keyOf(idempotencyHeader, idempotencyKey), "withdraw", () -> {
+                try {
+                    transactionService.withdraw(accountId, amount);
+                } catch (IllegalArgumentException | InsufficientBalanceException e) {
+                    return "redirect:/transactions/withdraw?error=" + e.getMessage();
+                }
+
+                return "redirect:/dashboard?success=Withdrawal+completed";
+            });
         } catch (RuntimeException e) {
             return "redirect:/transactions/withdraw?error=" + e.getMessage();
         }
-
-        return "redirect:/dashboard?success=Withdrawal+completed";
     }
 
     // ================== TRANSFER ==================
     @GetMapping("/transfer")
-    public String showTransferForm(Model model, Authentication authentication) {
-        User user = getUser(authentication);
-        if (user == null) return "redirect:/login";
+    public String showTransferForm(Model model, @CurrentCustomer CustomerContext ctx) {
+        if (ctx == null || !ctx.hasCustomer()) return "redirect:/login";
 
-        Customer customer = customerService.findByUserId(user.getId());
-        if (customer == null) return "redirect:/login";
-
-        List<Account> accounts = accountService.findByCustomerId(customer.getCustomerId());
-        List<Account> allAccounts = accountService.findAll();
+        // Own accounts only; the destination is typed as an account id, not picked from every account in the bank
+        List<AccountSummary> accounts = accountService.findSummariesByCustomerId(ctx.customerId());
 
         model.addAttribute("accounts", accounts);
-        model.addAttribute("allAccounts", allAccounts);
-        model.addAttribute("customer", customer);
-        model.addAttribute("user", user);
+        model.addAttribute("customer", ctx);
+        model.addAttribute("user", ctx);
         model.addAttribute("activePage", "transfer");
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
 
         return "transfer_form";
     }
@@ -154,22 +231,42 @@ public class TransactionController {
     public String processTransfer(@RequestParam Long fromAccountId,
                                   @RequestParam Long toAccountId,
                                   @RequestParam BigDecimal amount,
-                                  Authentication authentication) {
-        User user = getUser(authentication);
-        if (user == null) return "redirect:/login";
+                                  @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                                  @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader,
+                                  @CurrentCustomer CustomerContext ctx,
+                                  HttpSession session) {
+        if (ctx == null) return "redirect:/login";
+        if (!ownsAccount(ctx, fromAccountId, session)) return "redirect:/transactions/transfer?error=Account+not+found";
 
         try {
-            transactionService.transfer(fromAccountId, toAccountId, amount);
+            return idempotencyService.execute(ctx.username(), keyOf(idempotencyHeader, idempotencyKey), "transfer", () -> {
+                try {
+                    transactionService.transfer(fromAccountId, toAccountId, amount);
+                } catch (IllegalArgumentException | InsufficientBalanceException e) {
+                    return "redirect:/transactions/transfer?error=" + e.getMessage();
+                }
+
+                return "redirect:/dashboard?success=Transfer+completed";
+            });
         } catch (RuntimeException e) {
             return "redirect:/transactions/transfer?error=" + e.getMessage();
         }
-
-        return "redirect:/dashboard?success=Transfer+completed";
     }
 
     // ================== HELPER ==================
-    private User getUser(Authentication authentication) {
-        if (authentication == null || !authentication.isAuthenticated()) return null;
-        return authService.findByUsername(authentication.getName()).orElse(null);
+    // Header wins over the hidden form field so API clients can retry with the same key
+    private String keyOf(String header, String formField) {
+        return header != null && !header.isBlank() ? header : formField;
+    }
+
+    // A miss may just mean the session copy predates a new account, so rebuild it once
+    private boolean ownsAccount(CustomerContext ctx, Long accountId, HttpSession session) {
+        if (ctx == null) return false;
+        if (ctx.ownsAccount(accountId)) return true;
+
+        customerContextService.refresh(session);
+        return customerContextService.resolve(ctx.username())
+                .map(fresh -> fresh.ownsAccount(accountId))
+                .orElse(false);
     }
 }
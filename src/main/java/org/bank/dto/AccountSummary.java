@@ -0,0 +1,7 @@
+package org.bank.dto;
+
+import java.math.BigDecimal;
+
+/** Read-only account row for dashboards and listings (no customer graph attached). */
+public record AccountSummary(Long accountId, String accountType, BigDecimal balance) {
+}
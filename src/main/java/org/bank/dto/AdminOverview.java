@@ -0,0 +1,7 @@
+package org.bank.dto;
+
+import java.math.BigDecimal;
+
+/** Header figures for the admin dashboard, each from a single aggregate query. */
+public record AdminOverview(long customerCount, long accountCount, BigDecimal totalBalance, long transactionCount) {
+}
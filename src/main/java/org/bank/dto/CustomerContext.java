@@ -0,0 +1,31 @@
+package org.bank.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Who is calling, resolved once and kept in the HTTP session: the user, their customer
+ * record (null for admins without one) and the ids of the accounts they own.
+ * Exposes {@code username} for templates that render {@code user.username} and
+ * {@code customerId}/{@code name}/{@code hasProfilePhoto} for {@code customer.*}.
+ */
+public record CustomerContext(Long userId,
+                              String username,
+                              String role,
+                              Long customerId,
+                              String name,
+                              boolean hasProfilePhoto,
+                              List<Long> accountIds) implements Serializable {
+
+    public CustomerContext {
+        accountIds = List.copyOf(accountIds);
+    }
+
+    public boolean hasCustomer() {
+        return customerId != null;
+    }
+
+    public boolean ownsAccount(Long accountId) {
+        return accountId != null && accountIds.contains(accountId);
+    }
+}
@@ -0,0 +1,5 @@
+package org.bank.dto;
+
+/** The customer fields page headers need; the photo is reduced to a present/absent flag. */
+public record CustomerHeader(Long customerId, String name, boolean hasProfilePhoto) {
+}
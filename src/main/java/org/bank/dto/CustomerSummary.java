@@ -0,0 +1,5 @@
+package org.bank.dto;
+
+/** Customer listing row; deliberately leaves out the profile photo blob and the user link. */
+public record CustomerSummary(Long customerId, String name, String email, String phone) {
+}
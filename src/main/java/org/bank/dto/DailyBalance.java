@@ -0,0 +1,8 @@
+package org.bank.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** Closing balance of one account on one day. */
+public record DailyBalance(LocalDate date, BigDecimal balance) {
+}
@@ -0,0 +1,16 @@
+package org.bank.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Exported ledger row as stored, running balances included (null where not stamped). */
+public record TransactionExportRow(Long transactionId,
+                                   String transactionType,
+                                   BigDecimal amount,
+                                   LocalDateTime timestamp,
+                                   String status,
+                                   Long accountId,
+                                   Long destinationAccountId,
+                                   BigDecimal balanceAfter,
+                                   BigDecimal destinationBalanceAfter) {
+}
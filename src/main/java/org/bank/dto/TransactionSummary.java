@@ -0,0 +1,14 @@
+package org.bank.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Ledger listing row as stored (a TRANSFER row is one entry, not two legs). */
+public record TransactionSummary(Long transactionId,
+                                 String transactionType,
+                                 BigDecimal amount,
+                                 LocalDateTime timestamp,
+                                 String status,
+                                 Long accountId,
+                                 Long destinationAccountId) {
+}
@@ -4,11 +4,16 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 
 @Entity
 @Table(name = "accounts")
+// Each committed save (a @Version bump) replaces the cached entry; JDBC balance writers evict it,
+// see SecondLevelCache
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,4 +37,9 @@ public class Account {
     @Version
     @Column(nullable = false)
     private Long version = 0L;
+
+    // >1 marks a hot account whose credits are spread over this many AccountBalanceSlot rows.
+    // Only changed through HotAccountBalances.configure, never by saving the entity
+    @Column(name = "balance_slots", nullable = false, updatable = false)
+    private int balanceSlots;
 }
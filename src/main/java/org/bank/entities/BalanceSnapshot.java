@@ -0,0 +1,40 @@
+package org.bank.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Closing balance of an account on a day it had activity. Days without postings have no
+ * row; the balance carries forward from the previous snapshot.
+ */
+@Entity
+@Table(name = "account_balance_snapshots",
+        uniqueConstraints = @UniqueConstraint(name = "uk_balance_snapshot_account_date",
+                columnNames = {"account_id", "snapshot_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long snapshotId;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    // Last transactions row folded into this balance
+    @Column(name = "last_transaction_id", nullable = false)
+    private Long lastTransactionId;
+}
@@ -4,9 +4,15 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
 @Table(name = "customers")
+// Only changed columns are written, so a profile save cannot undo a photo set by ProfilePhotoProcessor
+@DynamicUpdate
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,9 +32,12 @@ public class Customer {
 
     private String address;
 
-    @Lob
-    @Column(name = "profile_photo", columnDefinition = "LONGBLOB")
-    private byte[] profilePhoto;
+    // SHA-256 of the photo in the profile photo store; the legacy profile_photo blob column is no longer mapped
+    @Column(name = "profile_photo_hash", length = 64)
+    private String profilePhotoHash;
+
+    @Column(name = "profile_photo_type", length = 32)
+    private String profilePhotoType;
 
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false, unique = true)
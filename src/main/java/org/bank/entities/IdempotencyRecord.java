@@ -0,0 +1,39 @@
+package org.bank.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys",
+        indexes = @Index(name = "idx_idempotency_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public static final String PENDING = "PENDING";
+    public static final String DONE = "DONE";
+
+    // "<username>:<client key>" so keys from different users never collide
+    @Id
+    @Column(name = "idempotency_key", length = 200)
+    private String key;
+
+    @Column(nullable = false)
+    private String operation;  // deposit, withdraw, transfer
+
+    // Outcome the original request produced (the redirect target), replayed verbatim; empty while PENDING
+    @Column(nullable = false, length = 1000)
+    private String result;
+
+    // PENDING from the reserving insert until the result is written, then DONE
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,45 @@
+package org.bank.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Interest accrued to an account for one day. At most one row per account and day, written in
+ * the same DB transaction as the INTEREST posting, so an accrual can never be applied twice.
+ * Days where the interest rounded to zero still get a row (with no transaction).
+ */
+@Entity
+@Table(name = "interest_accruals",
+        uniqueConstraints = @UniqueConstraint(name = "uk_interest_accrual_account_date",
+                columnNames = {"account_id", "accrual_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestAccrual {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long accrualId;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "accrual_date", nullable = false)
+    private LocalDate accrualDate;
+
+    // Balance the interest was computed on
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    // The INTEREST row; null when the amount was zero
+    @Column(name = "transaction_id")
+    private Long transactionId;
+}
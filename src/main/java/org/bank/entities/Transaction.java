@@ -13,7 +13,15 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions",
+        indexes = {
+                // transaction_id breaks timestamp ties so keyset history pages read straight off the index
+                @Index(name = "idx_transactions_account_ts_id", columnList = "account_id, timestamp, transaction_id"),
+                @Index(name = "idx_transactions_destination_ts_id", columnList = "destination_account_id, timestamp, transaction_id"),
+                @Index(name = "idx_transactions_journal_seq", columnList = "journal_seq"),
+                // day-range scans for the daily balance snapshot job
+                @Index(name = "idx_transactions_ts", columnList = "timestamp")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,7 +31,7 @@ public class Transaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long transactionId;
 
-    // For deposit/withdraw (single account involved)
+    // Account the row belongs to: the only account for deposit/withdraw, the sender for a TRANSFER
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "account_id")
     private Account account;
@@ -39,7 +47,7 @@ public class Transaction {
     private Account destinationAccount;
 
     @Column(nullable = false)
-    private String transactionType;  // deposit, withdraw, transfer
+    private String transactionType;  // DEPOSIT, WITHDRAW, TRANSFER, INTEREST (legacy: TRANSFER_SENT / TRANSFER_RECEIVED pairs)
 
     @Column(nullable = false)
     private BigDecimal amount;
@@ -50,4 +58,17 @@ public class Transaction {
 
     @Column(nullable = false)
     private String status;  // success, failed, pending
+
+    // Running balance of `account` right after this posting (the sender's, for a TRANSFER).
+    // Null on rows written before the column existed until the balance backfill has run.
+    @Column(name = "balance_after")
+    private BigDecimal balanceAfter;
+
+    // TRANSFER only: receiver's balance right after this posting
+    @Column(name = "destination_balance_after")
+    private BigDecimal destinationBalanceAfter;
+
+    // Posting journal sequence this row was written from (null when the journal is off)
+    @Column(name = "journal_seq")
+    private Long journalSequence;
 }
@@ -0,0 +1,25 @@
+package org.bank.journal;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One journaled posting effect. A deposit or withdrawal has one leg, a transfer has both
+ * legs in the same record so they are always recovered together.
+ */
+public record JournalRecord(long sequence, LocalDateTime timestamp, List<Leg> legs) {
+
+    /** One side of a posting as written to the {@code transactions} table. */
+    public record Leg(long accountId, String transactionType, BigDecimal amount) {
+
+        /** Signed balance change this leg applies to its account. */
+        public BigDecimal delta() {
+            return switch (transactionType) {
+                case "DEPOSIT", "TRANSFER_RECEIVED" -> amount;
+                case "WITHDRAW", "TRANSFER_SENT" -> amount.negate();
+                default -> throw new IllegalStateException("Unknown journal leg type: " + transactionType);
+            };
+        }
+    }
+}
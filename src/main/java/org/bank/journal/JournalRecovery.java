@@ -0,0 +1,128 @@
+package org.bank.journal;
+
+import org.bank.entities.Transaction;
+import org.bank.service.TransactionBatchWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Replays journal records that never reached the {@code transactions} table.
+ *
+ * A record is considered applied when a transaction row carries its sequence number
+ * ({@code journal_seq}); balance deltas and rows of one record are always committed
+ * together, so a missing row means the whole record is missing. Runs once at startup,
+ * before the web server accepts requests, whenever {@code bank.journal.enabled=true}.
+ */
+@Component
+public class JournalRecovery implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalRecovery.class);
+
+    private static final int REPLAY_BATCH = 500;
+
+    private final PostingJournal journal;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionBatchWriter rowWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public JournalRecovery(PostingJournal journal,
+                           JdbcTemplate jdbcTemplate,
+                           TransactionBatchWriter rowWriter,
+                           PlatformTransactionManager transactionManager) {
+        this.journal = journal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowWriter = rowWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (journal.isEnabled()) {
+            Report report = recover();
+            log.info("Posting journal recovery: {}", report);
+        }
+    }
+
+    public Report recover() {
+        long[] range = {Long.MAX_VALUE, Long.MIN_VALUE};
+        long[] records = {0};
+        PostingJournal.readAll(journal.getDirectory(), r -> {
+            range[0] = Math.min(range[0], r.sequence());
+            range[1] = Math.max(range[1], r.sequence());
+            records[0]++;
+        });
+        if (records[0] == 0) {
+            return new Report(0, 0, 0, 0);
+        }
+
+        Set<Long> applied = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT journal_seq FROM transactions WHERE journal_seq BETWEEN ? AND ?",
+                Long.class, range[0], range[1]));
+
+        List<JournalRecord> missing = new ArrayList<>(REPLAY_BATCH);
+        long[] replayed = {0};
+        PostingJournal.readAll(journal.getDirectory(), r -> {
+            if (applied.contains(r.sequence())) return;
+            missing.add(r);
+            if (missing.size() >= REPLAY_BATCH) {
+                replayed[0] += replay(missing);
+                missing.clear();
+            }
+        });
+        replayed[0] += replay(missing);
+
+        journal.retireThrough(range[1]);
+        return new Report(records[0], replayed[0], range[0], range[1]);
+    }
+
+    private int replay(List<JournalRecord> records) {
+        if (records.isEmpty()) return 0;
+
+        TreeMap<Long, BigDecimal> deltas = new TreeMap<>();
+        List<Transaction> rows = new ArrayList<>();
+        for (JournalRecord record : records) {
+            for (JournalRecord.Leg leg : record.legs()) {
+                deltas.merge(leg.accountId(), leg.delta(), BigDecimal::add);
+            }
+            Transaction row = toRow(record);
+            row.setJournalSequence(record.sequence());
+            rows.add(row);
+        }
+
+        List<Map.Entry<Long, BigDecimal>> updates = new ArrayList<>(deltas.entrySet());
+        transactionTemplate.executeWithoutResult(status -> {
+            rowWriter.applyDeltas(updates);
+            rowWriter.insert(rows);
+        });
+        return records.size();
+    }
+
+    // A transfer record holds its SENT and RECEIVED legs; it becomes one TRANSFER row.
+    // Running balances are not in the journal, so replayed rows are left for the balance backfill.
+    private static Transaction toRow(JournalRecord record) {
+        JournalRecord.Leg first = record.legs().get(0);
+        if (record.legs().size() == 2) {
+            return TransactionBatchWriter.transferRow(first.accountId(), null,
+                    record.legs().get(1).accountId(), null, first.amount(), record.timestamp());
+        }
+        return TransactionBatchWriter.successRow(first.accountId(), null,
+                first.transactionType(), first.amount(), record.timestamp());
+    }
+
+    public record Report(long records, long replayed, long firstSequence, long lastSequence) {}
+}
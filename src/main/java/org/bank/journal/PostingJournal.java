@@ -0,0 +1,297 @@
+package org.bank.journal;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped write-ahead journal of posting effects.
+ *
+ * The journal is a directory of fixed-size segment files named after the first sequence
+ * number they hold. Each record is {@code [int payloadLength][int crc32c][payload]}; a zero
+ * length marks the end of written data. A record whose checksum does not match (a torn
+ * write at crash time) ends the segment, and the tail is zeroed when the journal reopens.
+ *
+ * {@link #append} only writes into the mapped buffer; {@link #force} makes everything
+ * appended so far durable and is what callers wait on before acknowledging.
+ */
+@Component
+public class PostingJournal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int HEADER_BYTES = 8;
+    private static final List<String> LEG_TYPES = List.of("DEPOSIT", "WITHDRAW", "TRANSFER_SENT", "TRANSFER_RECEIVED");
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long nextSequence;
+    private boolean dirty;
+
+    @Autowired
+    public PostingJournal(@Value("${bank.journal.enabled:false}") boolean enabled,
+                          @Value("${bank.journal.dir:journal}") String directory,
+                          @Value("${bank.journal.segment-mb:64}") int segmentMegabytes) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentMegabytes * 1024 * 1024;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /** Write a record into the current segment (rolling if needed) and return its sequence number. */
+    public synchronized long append(LocalDateTime timestamp, List<JournalRecord.Leg> legs) {
+        ensureOpen();
+        long sequence = nextSequence;
+        byte[] payload = encode(new JournalRecord(sequence, timestamp, legs));
+
+        if (buffer.remaining() < HEADER_BYTES + payload.length + 4) {
+            rollSegment();
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        // Checksum before length: a reader never sees a non-zero length with a stale checksum slot
+        int start = buffer.position();
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.put(start + HEADER_BYTES, payload);
+        buffer.putInt(start, payload.length);
+        buffer.position(start + HEADER_BYTES + payload.length);
+
+        nextSequence++;
+        dirty = true;
+        return sequence;
+    }
+
+    /** Flush every appended record to the storage device. */
+    public synchronized void force() {
+        if (dirty && buffer != null) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    /** Delete closed segments whose records all have a sequence at or below {@code sequence}. */
+    public synchronized void retireThrough(long sequence) {
+        if (!Files.isDirectory(directory)) return;
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            long nextFirst = firstSequenceOf(segments.get(i + 1));
+            if (nextFirst - 1 <= sequence) {
+                deleteQuietly(segments.get(i));
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        force();
+        closeChannel();
+    }
+
+    // ================== READING ==================
+
+    /** Read every valid record in {@code directory}, oldest first. Stops a segment at its first bad record. */
+    public static void readAll(Path directory, Consumer<JournalRecord> consumer) {
+        for (Path segment : listSegments(directory)) {
+            readSegment(segment, consumer);
+        }
+    }
+
+    /** Returns the byte offset just past the last valid record. */
+    static int readSegment(Path segment, Consumer<JournalRecord> consumer) {
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            int end = 0;
+            while (in.remaining() >= HEADER_BYTES) {
+                int length = in.getInt(end);
+                if (length <= 0 || length > in.capacity() - end - HEADER_BYTES) break;
+
+                byte[] payload = new byte[length];
+                in.get(end + HEADER_BYTES, payload);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != in.getInt(end + 4)) break;
+
+                consumer.accept(decode(payload));
+                end += HEADER_BYTES + length;
+                in.position(end);
+            }
+            return end;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal segment " + segment, e);
+        }
+    }
+
+    static List<Path> listSegments(Path directory) {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal directory " + directory, e);
+        }
+    }
+
+    // ================== SEGMENTS ==================
+    private void ensureOpen() {
+        if (buffer != null) return;
+        if (!enabled) {
+            throw new IllegalStateException("Posting journal is disabled (bank.journal.enabled=false)");
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = listSegments(directory);
+            if (segments.isEmpty()) {
+                openSegment(1);
+                return;
+            }
+
+            Path last = segments.get(segments.size() - 1);
+            long[] lastSequence = {firstSequenceOf(last) - 1};
+            int end = readSegment(last, r -> lastSequence[0] = r.sequence());
+            openExisting(last, end);
+            nextSequence = lastSequence[0] + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open posting journal in " + directory, e);
+        }
+    }
+
+    private void openExisting(Path segment, int end) throws IOException {
+        channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentBytes));
+
+        // Zero anything past the last good record so a torn tail can never be read back
+        ByteBuffer zeros = ByteBuffer.allocate(64 * 1024);
+        buffer.position(end);
+        while (buffer.hasRemaining()) {
+            int n = Math.min(zeros.capacity(), buffer.remaining());
+            buffer.put(zeros.array(), 0, n);
+        }
+        buffer.force();
+        buffer.position(end);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        nextSequence = firstSequence;
+    }
+
+    private void rollSegment() {
+        try {
+            buffer.force();
+            closeChannel();
+            openSegment(nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll posting journal segment", e);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // the mapping stays valid until it is garbage collected
+            }
+        }
+        channel = null;
+        buffer = null;
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // retried on the next retirement pass
+        }
+    }
+
+    // ================== ENCODING ==================
+    private static byte[] encode(JournalRecord record) {
+        List<byte[]> amounts = new ArrayList<>(record.legs().size());
+        int size = 8 + 8 + 1;
+        for (JournalRecord.Leg leg : record.legs()) {
+            byte[] unscaled = leg.amount().unscaledValue().toByteArray();
+            amounts.add(unscaled);
+            size += 8 + 1 + 4 + 1 + unscaled.length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putLong(record.sequence());
+        out.putLong(record.timestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+        out.put((byte) record.legs().size());
+        for (int i = 0; i < record.legs().size(); i++) {
+            JournalRecord.Leg leg = record.legs().get(i);
+            int type = LEG_TYPES.indexOf(leg.transactionType());
+            if (type < 0) {
+                throw new IllegalArgumentException("Cannot journal transaction type " + leg.transactionType());
+            }
+            out.putLong(leg.accountId());
+            out.put((byte) type);
+            out.putInt(leg.amount().scale());
+            out.put((byte) amounts.get(i).length);
+            out.put(amounts.get(i));
+        }
+        return out.array();
+    }
+
+    private static JournalRecord decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        long sequence = in.getLong();
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(in.getLong()), ZoneOffset.UTC);
+        int legCount = in.get();
+
+        List<JournalRecord.Leg> legs = new ArrayList<>(legCount);
+        for (int i = 0; i < legCount; i++) {
+            long accountId = in.getLong();
+            String type = LEG_TYPES.get(in.get());
+            int scale = in.getInt();
+            byte[] unscaled = new byte[in.get()];
+            in.get(unscaled);
+            legs.add(new JournalRecord.Leg(accountId, type, new BigDecimal(new BigInteger(unscaled), scale)));
+        }
+        return new JournalRecord(sequence, timestamp, List.copyOf(legs));
+    }
+}
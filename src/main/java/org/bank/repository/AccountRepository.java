@@ -1,13 +1,71 @@
 package org.bank.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.bank.config.SecondLevelCache;
+import org.bank.dto.AccountSummary;
 import org.bank.entities.Account;
 import org.bank.entities.Customer;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
+    // A sharded account's balance is its row plus its credit slots (see AccountBalanceSlot)
+    String TOTAL_BALANCE = "a.balance + COALESCE((SELECT SUM(s.balance) FROM AccountBalanceSlot s "
+            + "WHERE s.accountId = a.accountId), 0)";
+
+    // Cached in their own region, which SecondLevelCache drops whenever balances are written with JDBC
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCache.ACCOUNT_QUERIES)})
     List<Account> findByCustomer_CustomerId(Long customerId);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCache.ACCOUNT_QUERIES)})
     List<Account> findByCustomer(Customer customer);
 
+    @Query("SELECT a.accountId FROM Account a WHERE a.customer.customerId = :customerId ORDER BY a.accountId")
+    List<Long> findIdsByCustomerId(@Param("customerId") Long customerId);
+
+    // Columns only, no entity state; one round trip for all of a customer's accounts
+    @Query("SELECT new org.bank.dto.AccountSummary(a.accountId, a.accountType, " + TOTAL_BALANCE + ") "
+            + "FROM Account a WHERE a.customer.customerId = :customerId ORDER BY a.accountId")
+    List<AccountSummary> findSummariesByCustomerId(@Param("customerId") Long customerId);
+
+    @Query(value = "SELECT new org.bank.dto.AccountSummary(a.accountId, a.accountType, " + TOTAL_BALANCE + ") "
+            + "FROM Account a "
+            + "WHERE :accountType IS NULL OR a.accountType = :accountType",
+            countQuery = "SELECT COUNT(a) FROM Account a WHERE :accountType IS NULL OR a.accountType = :accountType")
+    Page<AccountSummary> findSummaries(@Param("accountType") String accountType, Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(a.balance), 0) "
+            + "+ (SELECT COALESCE(SUM(s.balance), 0) FROM AccountBalanceSlot s) FROM Account a")
+    BigDecimal sumBalances();
+
+    @Query("SELECT a.accountId, a.balanceSlots FROM Account a WHERE a.balanceSlots > 1")
+    List<Object[]> findShardedAccounts();
+
+    @Modifying
+    @Query("UPDATE Account a SET a.balanceSlots = :slots WHERE a.accountId = :id")
+    int updateBalanceSlots(@Param("id") Long id, @Param("slots") int slots);
+
+    // Bumps the version so a concurrent optimistic posting on the same row retries
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount, a.version = a.version + 1 WHERE a.accountId = :id")
+    int addToBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
 
+    // SELECT ... FOR UPDATE; callers locking several rows must go in ascending id order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountId = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,19 @@
+package org.bank.repository;
+
+import org.bank.entities.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    // Range scan on (account_id, snapshot_date)
+    List<BalanceSnapshot> findByAccountIdAndSnapshotDateBetweenOrderBySnapshotDate(Long accountId,
+                                                                                   LocalDate from,
+                                                                                   LocalDate to);
+
+    @Query("SELECT MAX(s.snapshotDate) FROM BalanceSnapshot s")
+    LocalDate findLatestSnapshotDate();
+}
@@ -1,18 +1,54 @@
 package org.bank.repository;
 
+import jakarta.persistence.QueryHint;
+import org.bank.dto.CustomerHeader;
+import org.bank.dto.CustomerSummary;
 import org.bank.entities.Customer;
 import org.bank.entities.User;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     // Finds customer by the User's ID (works if Customer has a field 'user')
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Customer findByUserId(Long userId);
 
     // Finds customer by the User entity itself
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Customer> findByUser(User user);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Customer findByUser_Id(Long id);
+
+    @Query("SELECT new org.bank.dto.CustomerHeader(c.customerId, c.name, "
+            + "CASE WHEN c.profilePhotoHash IS NULL THEN false ELSE true END) FROM Customer c WHERE c.user.id = :userId")
+    Optional<CustomerHeader> findHeaderByUserId(@Param("userId") Long userId);
+
+    // Admin listing as a projection; search is a lower-case LIKE pattern or null
+    @Query(value = "SELECT new org.bank.dto.CustomerSummary(c.customerId, c.name, c.email, c.phone) FROM Customer c "
+            + "WHERE :search IS NULL OR LOWER(c.name) LIKE :search OR LOWER(c.email) LIKE :search",
+            countQuery = "SELECT COUNT(c) FROM Customer c "
+                    + "WHERE :search IS NULL OR LOWER(c.name) LIKE :search OR LOWER(c.email) LIKE :search")
+    Page<CustomerSummary> findSummaries(@Param("search") String search, Pageable pageable);
+
+    long countByProfilePhotoHash(String profilePhotoHash);
+
+    @Query("SELECT c.profilePhotoHash FROM Customer c WHERE c.customerId = :customerId")
+    String findProfilePhotoHash(@Param("customerId") Long customerId);
+
+    // Targeted update so a concurrent profile save cannot put back the old photo
+    @Modifying
+    @Transactional
+    @Query("UPDATE Customer c SET c.profilePhotoHash = :hash, c.profilePhotoType = :type WHERE c.customerId = :customerId")
+    int updateProfilePhoto(@Param("customerId") Long customerId, @Param("hash") String hash, @Param("type") String type);
 }
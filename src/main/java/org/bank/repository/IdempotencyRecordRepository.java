@@ -0,0 +1,37 @@
+package org.bank.repository;
+
+import org.bank.entities.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // A plain INSERT (save() would merge over an assigned id): a duplicate key means another request holds it
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, operation, result, status, created_at) "
+            + "VALUES (:key, :operation, '', 'PENDING', :createdAt)", nativeQuery = true)
+    int reserve(@Param("key") String key,
+                @Param("operation") String operation,
+                @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.result = :result, r.status = 'DONE' WHERE r.key = :key")
+    int complete(@Param("key") String key, @Param("result") String result);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.status = 'PENDING'")
+    int release(@Param("key") String key);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,13 @@
+package org.bank.repository;
+
+import org.bank.entities.InterestAccrual;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+
+public interface InterestAccrualRepository extends JpaRepository<InterestAccrual, Long> {
+
+    @Query("SELECT MAX(i.accrualDate) FROM InterestAccrual i")
+    LocalDate findLatestAccrualDate();
+}
@@ -1,13 +1,31 @@
 package org.bank.repository;
 
+import jakarta.persistence.QueryHint;
+import org.bank.dto.TransactionExportRow;
+import org.bank.dto.TransactionSummary;
 import org.bank.entities.Customer;
 import org.bank.entities.Transaction;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    String EXPORT_ROW = "SELECT new org.bank.dto.TransactionExportRow(t.transactionId, t.transactionType, t.amount, "
+            + "t.timestamp, t.status, a.accountId, d.accountId, t.balanceAfter, t.destinationBalanceAfter) "
+            + "FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.destinationAccount d ";
+    // MySQL Connector/J streams a result row by row (instead of buffering all of it) only for this fetch size
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
     List<Transaction> findByAccountAccountIdOrderByTimestampDesc(Long accountId);
 
     List<Transaction> findBySourceAccountAccountIdOrderByTimestampDesc(Long accountId);
@@ -16,4 +34,46 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     // 🔑 Correct one for customer:
     List<Transaction> findByAccountCustomerOrderByTimestampDesc(Customer customer);
+
+    // Receiving side of single-row TRANSFERs
+    List<Transaction> findByDestinationAccountCustomerOrderByTimestampDesc(Customer customer);
+
+    // Keyset history pages: one account's rows strictly before (timestamp, idBound) in newest-first
+    // order, read straight off the (account_id, timestamp, transaction_id) /
+    // (destination_account_id, ...) indexes. One account per query: with IN over several accounts
+    // MySQL has to filesort every older row. Pass Pageable.ofSize(n) to bound the page.
+    @Query("SELECT t FROM Transaction t WHERE t.account.accountId = :accountId "
+            + "AND (t.timestamp < :ts OR (t.timestamp = :ts AND t.transactionId < :idBound)) "
+            + "ORDER BY t.timestamp DESC, t.transactionId DESC")
+    List<Transaction> findAccountHistoryBefore(@Param("accountId") Long accountId,
+                                               @Param("ts") LocalDateTime timestamp,
+                                               @Param("idBound") Long idBound,
+                                               Pageable page);
+
+    @Query("SELECT t FROM Transaction t WHERE t.destinationAccount.accountId = :accountId "
+            + "AND (t.timestamp < :ts OR (t.timestamp = :ts AND t.transactionId < :idBound)) "
+            + "ORDER BY t.timestamp DESC, t.transactionId DESC")
+    List<Transaction> findDestinationHistoryBefore(@Param("accountId") Long accountId,
+                                                   @Param("ts") LocalDateTime timestamp,
+                                                   @Param("idBound") Long idBound,
+                                                   Pageable page);
+
+    // Admin ledger listing. A Slice, not a Page: no COUNT(*) over the whole table per page view.
+    @Query("SELECT new org.bank.dto.TransactionSummary(t.transactionId, t.transactionType, t.amount, t.timestamp, "
+            + "t.status, a.accountId, d.accountId) "
+            + "FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.destinationAccount d "
+            + "WHERE :transactionType IS NULL OR t.transactionType = :transactionType")
+    Slice<TransactionSummary> findSummaries(@Param("transactionType") String transactionType, Pageable pageable);
+
+    // Forward-only cursors for exports: DTO rows, so nothing piles up in the persistence context.
+    // Consume inside a read-only transaction and close the stream; while it is open the
+    // connection can't run other statements.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query(EXPORT_ROW + "ORDER BY t.transactionId")
+    Stream<TransactionExportRow> streamLedger();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query(EXPORT_ROW + "WHERE a.accountId IN :accountIds OR d.accountId IN :accountIds "
+            + "ORDER BY t.timestamp, t.transactionId")
+    Stream<TransactionExportRow> streamHistory(@Param("accountIds") Collection<Long> accountIds);
 }
@@ -0,0 +1,59 @@
+package org.bank.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of locks that account ids hash onto. Several accounts may share a stripe;
+ * stripes are always taken in ascending stripe order so two callers can never wait on
+ * each other in a cycle.
+ */
+@Component
+public class AccountLockStripes {
+
+    private final ReentrantLock[] stripes;
+    private final PostingContentionMetrics metrics;
+
+    @Autowired
+    public AccountLockStripes(@Value("${bank.posting.lock-stripes:1024}") int stripeCount,
+                              PostingContentionMetrics metrics) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.metrics = metrics;
+    }
+
+    /** Run {@code work} while holding the stripes of every given account id. */
+    public <T> T withLocks(Supplier<T> work, Long... accountIds) {
+        int[] order = Arrays.stream(accountIds)
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        long start = System.nanoTime();
+        int held = 0;
+        try {
+            for (int stripe : order) {
+                stripes[stripe].lock();
+                held++;
+            }
+            metrics.recordLockWait(System.nanoTime() - start);
+            return work.get();
+        } finally {
+            for (int i = held - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    private int stripeOf(Long accountId) {
+        return Math.floorMod(Long.hashCode(accountId), stripes.length);
+    }
+}
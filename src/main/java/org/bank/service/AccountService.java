@@ -1,8 +1,12 @@
 package org.bank.service;
 
+import org.bank.dto.AccountSummary;
 import org.bank.entities.Account;
 import org.bank.entities.Customer;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
@@ -15,6 +19,12 @@ public interface AccountService {
     void deleteById(Long id);
     List<Account> findByCustomerId(Long customerId);
     List<Account> findByCustomer(Customer customer);
+    List<AccountSummary> findSummariesByCustomerId(Long customerId);
+
+    // Admin listings and aggregates
+    Page<AccountSummary> findSummaries(String accountType, Pageable pageable);
+    long count();
+    BigDecimal totalBalance();
 
     // Banking operations
     void deposit(Long accountId, BigDecimal amount);
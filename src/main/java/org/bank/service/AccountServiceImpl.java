@@ -1,10 +1,14 @@
 package org.bank.service;
 
+import org.bank.dto.AccountSummary;
 import org.bank.entities.Account;
 import org.bank.entities.Customer;
 import org.bank.repository.AccountRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -33,16 +37,29 @@ public class AccountServiceImpl implements AccountService {
                 .orElseThrow(() -> new RuntimeException("Account not found"));
     }
 
+    // In the partitioned posting mode the partition workers hold the live balances and write them
+    // behind as deltas: an entity save (it writes the whole row, balance included) or a delete
+    // would go stale in memory and race the pending deltas. Only new accounts may be saved then.
     @Override
     public Account save(Account account) {
+        if (account.getAccountId() != null) {
+            requireDirectBalanceWrites();
+        }
         return accountRepository.save(account);
     }
 
     @Override
     public void deleteById(Long id) {
+        requireDirectBalanceWrites();
         accountRepository.deleteById(id);
     }
 
+    private void requireDirectBalanceWrites() {
+        if (transactionService.getPostingMode() == PostingMode.PARTITIONED) {
+            throw new IllegalStateException("Accounts can't be edited or deleted in the partitioned posting mode");
+        }
+    }
+
     @Override
     public List<Account> findByCustomerId(Long customerId) {
         return accountRepository.findByCustomer_CustomerId(customerId);
@@ -53,6 +70,28 @@ public class AccountServiceImpl implements AccountService {
         return accountRepository.findByCustomer(customer);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<AccountSummary> findSummariesByCustomerId(Long customerId) {
+        return accountRepository.findSummariesByCustomerId(customerId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<AccountSummary> findSummaries(String accountType, Pageable pageable) {
+        return accountRepository.findSummaries(accountType == null || accountType.isBlank() ? null : accountType, pageable);
+    }
+
+    @Override
+    public long count() {
+        return accountRepository.count();
+    }
+
+    @Override
+    public BigDecimal totalBalance() {
+        return accountRepository.sumBalances();
+    }
+
     // ✅ Delegate balance operations to TransactionService (single source of truth)
 
     @Override
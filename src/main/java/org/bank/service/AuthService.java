@@ -19,12 +19,15 @@ public class AuthService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
 
     @Autowired
     public AuthService(UserRepository userRepository,
-                       PasswordEncoder passwordEncoder) {
+                       PasswordEncoder passwordEncoder,
+                       UserCache userCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
     }
 
     // -----------------------------
@@ -32,7 +35,7 @@ public class AuthService implements UserDetailsService {
     // -----------------------------
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        User user = userCache.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
         return org.springframework.security.core.userdetails.User.builder()
@@ -58,6 +61,7 @@ public class AuthService implements UserDetailsService {
 
         // Save user
         User savedUser = userRepository.save(user);
+        userCache.invalidate(savedUser.getUsername());
 
         // Auto-create Customer for normal users if not already linked
         if ("ROLE_USER".equals(savedUser.getRole())) {
@@ -78,6 +82,6 @@ public class AuthService implements UserDetailsService {
     // Helper to fetch user by username
     // -----------------------------
     public Optional<User> findByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return userCache.findByUsername(username);
     }
 }
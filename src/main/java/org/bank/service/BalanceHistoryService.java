@@ -0,0 +1,190 @@
+package org.bank.service;
+
+import org.bank.dto.DailyBalance;
+import org.bank.entities.BalanceSnapshot;
+import org.bank.repository.BalanceSnapshotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Point-in-time balances from the running balance stamped on every posting
+ * ({@code balance_after} / {@code destination_balance_after}) and daily series from
+ * {@code account_balance_snapshots}. Each lookup is a couple of index seeks, never a scan
+ * of the account's history.
+ *
+ * Postings on a sharded (hot) account carry no running balance, so for those the balance is
+ * unwound from the current one by summing the postings made since.
+ */
+@Service
+public class BalanceHistoryService {
+
+    public static final int MAX_SERIES_DAYS = 366;
+
+    // Row types that take money out of `account_id`; every other type credits it.
+    // The receiving side of a TRANSFER (destination_account_id) is always a credit.
+    static final Set<String> DEBIT_TYPES = Set.of("WITHDRAW", "TRANSFER_SENT", "TRANSFER");
+    static final String SIGNED_AMOUNT_SQL =
+            "CASE WHEN transaction_type IN ('WITHDRAW', 'TRANSFER_SENT', 'TRANSFER') THEN -amount ELSE amount END";
+
+    private static final String LAST_SENT_SQL =
+            "SELECT timestamp, transaction_id, transaction_type, amount, balance_after FROM transactions "
+                    + "WHERE account_id = ? AND timestamp <= ? ORDER BY timestamp DESC, transaction_id DESC LIMIT 1";
+    private static final String LAST_RECEIVED_SQL =
+            "SELECT timestamp, transaction_id, transaction_type, amount, destination_balance_after FROM transactions "
+                    + "WHERE destination_account_id = ? AND timestamp <= ? ORDER BY timestamp DESC, transaction_id DESC LIMIT 1";
+    private static final String FIRST_SENT_SQL =
+            "SELECT timestamp, transaction_id, transaction_type, amount, balance_after FROM transactions "
+                    + "WHERE account_id = ? ORDER BY timestamp, transaction_id LIMIT 1";
+    private static final String FIRST_RECEIVED_SQL =
+            "SELECT timestamp, transaction_id, transaction_type, amount, destination_balance_after FROM transactions "
+                    + "WHERE destination_account_id = ? ORDER BY timestamp, transaction_id LIMIT 1";
+    private static final String CURRENT_BALANCE_SQL =
+            "SELECT a.balance + COALESCE((SELECT SUM(s.balance) FROM account_balance_slots s "
+                    + "WHERE s.account_id = a.account_id), 0) FROM accounts a WHERE a.account_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    public BalanceHistoryService(JdbcTemplate jdbcTemplate, BalanceSnapshotRepository snapshotRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotRepository = snapshotRepository;
+    }
+
+    /** Signed effect of a row on the account it is read for. */
+    public static BigDecimal signedAmount(String transactionType, BigDecimal amount, boolean receivingSide) {
+        return !receivingSide && DEBIT_TYPES.contains(transactionType) ? amount.negate() : amount;
+    }
+
+    // ================== POINT IN TIME ==================
+    @Transactional(readOnly = true)
+    public BigDecimal balanceAt(Long accountId, LocalDateTime at) {
+        Timestamp ts = Timestamp.valueOf(at);
+        Entry last = later(
+                first(LAST_SENT_SQL, false, accountId, ts),
+                first(LAST_RECEIVED_SQL, true, accountId, ts));
+        if (last != null) {
+            return last.balanceAfter() != null ? last.balanceAfter() : unwound(accountId, ts);
+        }
+
+        // Nothing posted yet at `at`: the opening balance, taken back out of the first posting
+        Entry firstSent = first(FIRST_SENT_SQL, false, accountId);
+        Entry firstReceived = first(FIRST_RECEIVED_SQL, true, accountId);
+        Entry earliest = firstSent == null ? firstReceived
+                : firstReceived == null ? firstSent
+                : (later(firstSent, firstReceived) == firstSent ? firstReceived : firstSent);
+        if (earliest != null) {
+            return earliest.balanceAfter() == null ? unwound(accountId, ts)
+                    : earliest.balanceAfter().subtract(signedAmount(earliest.type(), earliest.amount(), earliest.receivingSide()));
+        }
+        return currentBalance(accountId);
+    }
+
+    // ================== DAILY SERIES ==================
+    /**
+     * Closing balance for every day in [from, to]. Days up to the last snapshot run come from
+     * one range scan over the snapshots (carried forward over quiet days); later days, normally
+     * only today, are point-in-time lookups.
+     */
+    @Transactional(readOnly = true)
+    public List<DailyBalance> dailyBalances(Long accountId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("'to' must not be before 'from'");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_SERIES_DAYS) {
+            throw new IllegalArgumentException("Series is limited to " + MAX_SERIES_DAYS + " days");
+        }
+
+        // Snapshots only see stamped postings, so a sharded account's days are all looked up
+        LocalDate latest = isSharded(accountId) ? null : snapshotRepository.findLatestSnapshotDate();
+        LocalDate snapshotEnd = latest == null || latest.isBefore(from) ? from.minusDays(1)
+                : (latest.isBefore(to) ? latest : to);
+
+        List<DailyBalance> series = new ArrayList<>();
+        if (!snapshotEnd.isBefore(from)) {
+            BigDecimal balance = balanceAt(accountId, endOf(from.minusDays(1)));
+            Iterator<BalanceSnapshot> snapshots = snapshotRepository
+                    .findByAccountIdAndSnapshotDateBetweenOrderBySnapshotDate(accountId, from, snapshotEnd)
+                    .iterator();
+            BalanceSnapshot next = snapshots.hasNext() ? snapshots.next() : null;
+            for (LocalDate day = from; !day.isAfter(snapshotEnd); day = day.plusDays(1)) {
+                if (next != null && next.getSnapshotDate().equals(day)) {
+                    balance = next.getBalance();
+                    next = snapshots.hasNext() ? snapshots.next() : null;
+                }
+                series.add(new DailyBalance(day, balance));
+            }
+        }
+        for (LocalDate day = snapshotEnd.plusDays(1); !day.isAfter(to); day = day.plusDays(1)) {
+            series.add(new DailyBalance(day, balanceAt(accountId, endOf(day))));
+        }
+        return series;
+    }
+
+    // ================== HELPERS ==================
+    // transactions.timestamp is a plain DATETIME (whole seconds)
+    private static LocalDateTime endOf(LocalDate day) {
+        return day.atTime(23, 59, 59);
+    }
+
+    private Entry first(String sql, boolean receivingSide, Object... args) {
+        List<Entry> rows = jdbcTemplate.query(sql, (rs, i) -> new Entry(
+                rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2), rs.getString(3),
+                rs.getBigDecimal(4), rs.getBigDecimal(5), receivingSide), args);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static Entry later(Entry a, Entry b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        int byTime = a.timestamp().compareTo(b.timestamp());
+        if (byTime != 0) return byTime > 0 ? a : b;
+        return a.transactionId() > b.transactionId() ? a : b;
+    }
+
+    private BigDecimal currentBalance(Long accountId) {
+        List<BigDecimal> current = jdbcTemplate.queryForList(CURRENT_BALANCE_SQL, BigDecimal.class, accountId);
+        if (current.isEmpty()) {
+            throw new IllegalArgumentException("Account not found: " + accountId);
+        }
+        return current.get(0);
+    }
+
+    private boolean isSharded(Long accountId) {
+        List<Integer> slots = jdbcTemplate.queryForList(
+                "SELECT balance_slots FROM accounts WHERE account_id = ?", Integer.class, accountId);
+        return !slots.isEmpty() && slots.get(0) > 1;
+    }
+
+    // Balance at `at` for an unstamped posting: the current balance minus everything posted after
+    // `at`. Scans the account's later history, so only done for sharded accounts; anywhere else an
+    // unstamped row means the backfill hasn't run.
+    private BigDecimal unwound(Long accountId, Timestamp at) {
+        if (!isSharded(accountId)) {
+            throw new IllegalStateException("Running balances for account " + accountId
+                    + " have not been backfilled yet (bank.ledger.backfill-balances)");
+        }
+        BigDecimal sent = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(" + SIGNED_AMOUNT_SQL + "), 0) FROM transactions "
+                        + "WHERE account_id = ? AND timestamp > ?", BigDecimal.class, accountId, at);
+        BigDecimal received = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE destination_account_id = ? AND timestamp > ?",
+                BigDecimal.class, accountId, at);
+        return currentBalance(accountId).subtract(sent).subtract(received);
+    }
+
+    private record Entry(LocalDateTime timestamp, long transactionId, String type,
+                         BigDecimal amount, BigDecimal balanceAfter, boolean receivingSide) {}
+}
@@ -0,0 +1,108 @@
+package org.bank.service;
+
+import org.bank.repository.BalanceSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the closing balance of every account that had postings on a given day into
+ * {@code account_balance_snapshots}. The day is read once in (timestamp, id) order in
+ * keyset chunks; the last running balance seen per account is its closing balance.
+ * Runs nightly for the days since the last snapshot (at most {@link #MAX_CATCH_UP_DAYS}).
+ */
+@Component
+public class BalanceSnapshotJob {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSnapshotJob.class);
+
+    static final int MAX_CATCH_UP_DAYS = 31;
+    private static final int CHUNK = 5000;
+
+    private static final String DAY_CHUNK_SQL =
+            "SELECT transaction_id, timestamp, account_id, balance_after, destination_account_id, "
+                    + "destination_balance_after FROM transactions "
+                    + "WHERE timestamp < ? AND (timestamp > ? OR (timestamp = ? AND transaction_id > ?)) "
+                    + "ORDER BY timestamp, transaction_id LIMIT " + CHUNK;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO account_balance_snapshots (account_id, snapshot_date, balance, last_transaction_id) "
+                    + "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE balance = VALUES(balance), "
+                    + "last_transaction_id = VALUES(last_transaction_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    public BalanceSnapshotJob(JdbcTemplate jdbcTemplate, BalanceSnapshotRepository snapshotRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotRepository = snapshotRepository;
+    }
+
+    @Scheduled(cron = "${bank.ledger.snapshot-cron:0 10 0 * * *}")
+    public void snapshotPendingDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate latest = snapshotRepository.findLatestSnapshotDate();
+        LocalDate from = latest == null ? yesterday : latest.plusDays(1);
+        if (from.isBefore(yesterday.minusDays(MAX_CATCH_UP_DAYS - 1))) {
+            from = yesterday.minusDays(MAX_CATCH_UP_DAYS - 1);
+        }
+        for (LocalDate day = from; !day.isAfter(yesterday); day = day.plusDays(1)) {
+            int written = snapshotDay(day);
+            log.info("Balance snapshots for {}: {} accounts", day, written);
+        }
+    }
+
+    /** Snapshot one (finished) day; safe to rerun. Returns the number of accounts written. */
+    public int snapshotDay(LocalDate day) {
+        Timestamp end = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        Timestamp cursorTs = Timestamp.valueOf(day.atStartOfDay());
+        long cursorId = -1; // first chunk: timestamp >= start of day
+
+        // accountId -> {closing balance or null if not backfilled, last transaction id}
+        Map<Long, Object[]> closing = new HashMap<>();
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(DAY_CHUNK_SQL, (rs, i) -> new Object[]{
+                    rs.getLong(1), rs.getTimestamp(2), rs.getLong(3), rs.getBigDecimal(4),
+                    rs.getObject(5, Long.class), rs.getBigDecimal(6)
+            }, end, cursorTs, cursorTs, cursorId);
+
+            for (Object[] row : rows) {
+                long id = (Long) row[0];
+                closing.put((Long) row[2], new Object[]{row[3], id});
+                if (row[4] != null) {
+                    closing.put((Long) row[4], new Object[]{row[5], id});
+                }
+            }
+            if (rows.size() < CHUNK) break;
+            Object[] last = rows.get(rows.size() - 1);
+            cursorId = (Long) last[0];
+            cursorTs = (Timestamp) last[1];
+        }
+
+        List<Object[]> upserts = new ArrayList<>(closing.size());
+        Date snapshotDate = Date.valueOf(day);
+        closing.forEach((accountId, state) -> {
+            BigDecimal balance = (BigDecimal) state[0];
+            if (balance != null) { // rows not stamped yet are picked up after the backfill
+                upserts.add(new Object[]{accountId, snapshotDate, balance, state[1]});
+            }
+        });
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+        }
+        return upserts.size();
+    }
+}
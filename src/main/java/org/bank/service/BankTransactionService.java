@@ -1,19 +1,36 @@
 package org.bank.service;
 
+import org.bank.audit.AuditLog;
+import org.bank.dto.TransactionSummary;
 import org.bank.entities.Account;
 import org.bank.entities.Customer;
 import org.bank.entities.Transaction;
 import org.bank.repository.AccountRepository;
 import org.bank.repository.TransactionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 @Service
 @Transactional(isolation = Isolation.READ_COMMITTED)
@@ -21,13 +38,55 @@ public class BankTransactionService {
 
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
+    private final GroupCommitPostingEngine groupCommitEngine;
+    private final PartitionedPostingEngine partitionedEngine;
+    private final AccountLockStripes lockStripes;
+    private final HotAccountBalances hotAccounts;
+    private final PostingContentionMetrics contentionMetrics;
+    private final AuditLog auditLog;
+    private final TransactionTemplate postingTransaction;
+    private final PostingMode postingMode;
+    private final PostingConcurrency concurrency;
     private static final int MAX_RETRIES = 3;
+    public static final int MAX_HISTORY_PAGE = 200;
+    // Cursor for the first history page; MySQL DATETIME tops out at year 9999
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    // Order of the keyset history queries, for merging their per-account results
+    private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+            .comparing(Transaction::getTimestamp).thenComparing(Transaction::getTransactionId).reversed();
 
     @Autowired
     public BankTransactionService(TransactionRepository transactionRepository,
-                                  AccountRepository accountRepository) {
+                                  AccountRepository accountRepository,
+                                  GroupCommitPostingEngine groupCommitEngine,
+                                  PartitionedPostingEngine partitionedEngine,
+                                  AccountLockStripes lockStripes,
+                                  HotAccountBalances hotAccounts,
+                                  PostingContentionMetrics contentionMetrics,
+                                  AuditLog auditLog,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${bank.posting.mode:direct}") String postingMode,
+                                  @Value("${bank.posting.concurrency:optimistic}") String concurrency) {
         this.transactionRepository = transactionRepository;
         this.accountRepository = accountRepository;
+        this.groupCommitEngine = groupCommitEngine;
+        this.partitionedEngine = partitionedEngine;
+        this.lockStripes = lockStripes;
+        this.hotAccounts = hotAccounts;
+        this.contentionMetrics = contentionMetrics;
+        this.auditLog = auditLog;
+        this.postingTransaction = new TransactionTemplate(transactionManager);
+        this.postingTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.postingMode = PostingMode.fromProperty(postingMode);
+        this.concurrency = PostingConcurrency.fromProperty(concurrency);
+    }
+
+    public PostingMode getPostingMode() {
+        return postingMode;
+    }
+
+    public PostingConcurrency getConcurrency() {
+        return concurrency;
     }
 
     // ================== BASIC FINDS ==================
@@ -36,141 +95,246 @@ public class BankTransactionService {
         return transactionRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public Slice<TransactionSummary> findSummaries(String transactionType, Pageable pageable) {
+        return transactionRepository.findSummaries(
+                transactionType == null || transactionType.isBlank() ? null : transactionType, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public long count() {
+        return transactionRepository.count();
+    }
+
+    // Per-account views: a TRANSFER row shows up as TRANSFER_SENT on the sender's side and as
+    // TRANSFER_RECEIVED on the receiver's side. Each side is its own index-driven query.
     @Transactional(readOnly = true)
     public List<Transaction> findByAccountId(Long accountId) {
-        return transactionRepository.findByAccountAccountIdOrderByTimestampDesc(accountId);
+        return mergeNewestFirst(
+                transactionRepository.findByAccountAccountIdOrderByTimestampDesc(accountId),
+                transactionRepository.findByDestinationAccountAccountIdOrderByTimestampDesc(accountId));
     }
 
     @Transactional(readOnly = true)
     public List<Transaction> findByCustomer(Customer customer) {
-        return transactionRepository.findByAccountCustomerOrderByTimestampDesc(customer);
+        return mergeNewestFirst(
+                transactionRepository.findByAccountCustomerOrderByTimestampDesc(customer),
+                transactionRepository.findByDestinationAccountCustomerOrderByTimestampDesc(customer));
+    }
+
+    // ================== HISTORY PAGES ==================
+    // Newest-first history across several accounts, one page at a time. Two bounded keyset
+    // queries per account and page (sending side and receiving side), each reading at most
+    // size + 1 index entries however long the history; the results are merged here.
+    @Transactional(readOnly = true)
+    public TransactionPage findHistoryPage(Collection<Long> accountIds, String cursor, int size) {
+        if (accountIds.isEmpty()) {
+            return new TransactionPage(List.of(), null);
+        }
+        int limit = Math.max(1, Math.min(size, MAX_HISTORY_PAGE));
+        TransactionPage.Cursor after = cursor == null || cursor.isBlank()
+                ? new TransactionPage.Cursor(HISTORY_START, Long.MAX_VALUE, true)
+                : TransactionPage.Cursor.decode(cursor);
+
+        // The received leg sorts after the sent leg of the same row, so it is still due
+        // when the page ended on that row's sent leg
+        long sentBound = after.transactionId();
+        long receivedBound = after.received() ? after.transactionId() : after.transactionId() + 1;
+
+        Pageable fetch = Pageable.ofSize(limit + 1);
+        List<Transaction> sent = new ArrayList<>();
+        List<Transaction> received = new ArrayList<>();
+        for (Long accountId : accountIds) {
+            sent.addAll(transactionRepository.findAccountHistoryBefore(
+                    accountId, after.timestamp(), sentBound, fetch));
+            received.addAll(transactionRepository.findDestinationHistoryBefore(
+                    accountId, after.timestamp(), receivedBound, fetch));
+        }
+        sent.sort(NEWEST_FIRST);
+        received.sort(NEWEST_FIRST);
+
+        List<Transaction> page = new ArrayList<>(limit);
+        TransactionPage.Cursor last = null;
+        int i = 0, j = 0;
+        while (page.size() < limit && (i < sent.size() || j < received.size())) {
+            boolean takeSent = j >= received.size()
+                    || (i < sent.size() && !isOlder(sent.get(i), received.get(j)));
+            Transaction tx = takeSent ? sent.get(i++) : received.get(j++);
+            page.add(asLeg(tx, !takeSent));
+            last = new TransactionPage.Cursor(tx.getTimestamp(), tx.getTransactionId(), !takeSent);
+        }
+
+        boolean more = i < sent.size() || j < received.size();
+        return new TransactionPage(page, more ? last.encode() : null);
     }
 
     // ================== DEPOSIT ==================
-    @Transactional(isolation = Isolation.READ_COMMITTED)
+    // Postings manage their own transaction per attempt (or hand off to the group-commit or
+    // partitioned engine), so the caller's thread never holds a pooled connection while it waits.
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Transaction deposit(Long accountId, BigDecimal amount) {
         validateAmount(amount);
-        int attempts = 0;
+        if (postingMode != PostingMode.DIRECT) {
+            return awaitPosting(Posting.deposit(accountId, amount));
+        }
+        return postDirect(Posting.deposit(accountId, amount), "Concurrent deposit failed after retries",
+                () -> doDeposit(accountId, amount));
+    }
 
-        while (true) {
-            try {
-                Account account = accountRepository.findById(accountId)
-                        .orElseThrow(() -> new IllegalArgumentException("Account not found: " + accountId));
+    private Transaction doDeposit(Long accountId, BigDecimal amount) {
+        if (hotAccounts.credit(accountId, amount)) {
+            // Sharded account: the amount went to a balance slot and the account row is left alone
+            Transaction tx = new Transaction();
+            tx.setAccount(accountRepository.getReferenceById(accountId));
+            tx.setTransactionType("DEPOSIT");
+            tx.setAmount(amount);
+            tx.setTimestamp(LocalDateTime.now());
+            tx.setStatus("SUCCESS");
+            return transactionRepository.saveAndFlush(tx);
+        }
 
-                BigDecimal currentBalance = account.getBalance() == null ? BigDecimal.ZERO : account.getBalance();
-                account.setBalance(currentBalance.add(amount));
+        Account account = loadAccount(accountId, "Account not found: ");
 
-                accountRepository.saveAndFlush(account); // ✅ persist account change immediately
+        BigDecimal currentBalance = account.getBalance() == null ? BigDecimal.ZERO : account.getBalance();
+        account.setBalance(currentBalance.add(amount));
 
-                Transaction tx = new Transaction();
-                tx.setAccount(account);
-                tx.setTransactionType("DEPOSIT");
-                tx.setAmount(amount);
-                tx.setTimestamp(LocalDateTime.now());
-                tx.setStatus("SUCCESS");
+        accountRepository.saveAndFlush(account); // ✅ persist account change immediately
 
-                transactionRepository.saveAndFlush(tx); // ✅ persist transaction immediately
-                System.out.println("✅ Deposit successful: Account " + accountId + " new balance = " + account.getBalance());
-                return tx;
+        Transaction tx = new Transaction();
+        tx.setAccount(account);
+        tx.setTransactionType("DEPOSIT");
+        tx.setAmount(amount);
+        tx.setTimestamp(LocalDateTime.now());
+        tx.setStatus("SUCCESS");
+        tx.setBalanceAfter(runningBalance(account));
 
-            } catch (OptimisticLockingFailureException | jakarta.persistence.OptimisticLockException e) {
-                if (++attempts >= MAX_RETRIES) throw new RuntimeException("Concurrent deposit failed after retries", e);
-                sleepBeforeRetry(attempts);
-            }
-        }
+        return transactionRepository.saveAndFlush(tx); // ✅ persist transaction immediately
     }
 
     // ================== WITHDRAW ==================
-    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Transaction withdraw(Long accountId, BigDecimal amount) {
         validateAmount(amount);
-        int attempts = 0;
-
-        while (true) {
-            try {
-                Account account = accountRepository.findById(accountId)
-                        .orElseThrow(() -> new IllegalArgumentException("Account not found: " + accountId));
+        if (postingMode != PostingMode.DIRECT) {
+            return awaitPosting(Posting.withdraw(accountId, amount));
+        }
+        return postDirect(Posting.withdraw(accountId, amount), "Concurrent withdrawal failed after retries",
+                () -> doWithdraw(accountId, amount));
+    }
 
-                BigDecimal currentBalance = account.getBalance() == null ? BigDecimal.ZERO : account.getBalance();
-                if (currentBalance.compareTo(amount) < 0) {
-                    throw new IllegalStateException("Insufficient balance for withdrawal");
-                }
+    private Transaction doWithdraw(Long accountId, BigDecimal amount) {
+        Account account = loadAccount(accountId, "Account not found: ");
 
-                account.setBalance(currentBalance.subtract(amount));
-                accountRepository.saveAndFlush(account);
+        BigDecimal currentBalance = debitableBalance(account, amount);
+        if (currentBalance.compareTo(amount) < 0) {
+            throw new InsufficientBalanceException("Insufficient balance for withdrawal");
+        }
 
-                Transaction tx = new Transaction();
-                tx.setAccount(account);
-                tx.setTransactionType("WITHDRAW");
-                tx.setAmount(amount);
-                tx.setTimestamp(LocalDateTime.now());
-                tx.setStatus("SUCCESS");
+        account.setBalance(currentBalance.subtract(amount));
+        accountRepository.saveAndFlush(account);
 
-                transactionRepository.saveAndFlush(tx);
-                System.out.println("✅ Withdrawal successful: Account " + accountId + " new balance = " + account.getBalance());
-                return tx;
+        Transaction tx = new Transaction();
+        tx.setAccount(account);
+        tx.setTransactionType("WITHDRAW");
+        tx.setAmount(amount);
+        tx.setTimestamp(LocalDateTime.now());
+        tx.setStatus("SUCCESS");
+        tx.setBalanceAfter(runningBalance(account));
 
-            } catch (OptimisticLockingFailureException | jakarta.persistence.OptimisticLockException e) {
-                if (++attempts >= MAX_RETRIES) throw new RuntimeException("Concurrent withdrawal failed after retries", e);
-                sleepBeforeRetry(attempts);
-            }
-        }
+        return transactionRepository.saveAndFlush(tx);
     }
 
     // ================== TRANSFER ==================
-    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
         validateAmount(amount);
         if (fromAccountId.equals(toAccountId)) {
             throw new IllegalArgumentException("Cannot transfer to the same account");
         }
+        if (postingMode != PostingMode.DIRECT) {
+            awaitPosting(Posting.transfer(fromAccountId, toAccountId, amount));
+            return;
+        }
+        postDirect(Posting.transfer(fromAccountId, toAccountId, amount), "Concurrent transfer failed after retries",
+                () -> doTransfer(fromAccountId, toAccountId, amount));
+    }
 
-        int attempts = 0;
+    private Transaction doTransfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        if (hotAccounts.isSharded(toAccountId)) {
+            // Only the sender's row is touched; its slots (if any) and the receiver's slot are
+            // locked before the sender's row is written
+            Account fromAccount = loadAccount(fromAccountId, "Source account not found: ");
+            BigDecimal fromBal = debitableBalance(fromAccount, amount);
+            if (fromBal.compareTo(amount) < 0) {
+                throw new InsufficientBalanceException("Insufficient balance for transfer");
+            }
+            if (hotAccounts.credit(toAccountId, amount)) {
+                fromAccount.setBalance(fromBal.subtract(amount));
+                accountRepository.saveAndFlush(fromAccount);
+                return saveTransfer(fromAccount, accountRepository.getReferenceById(toAccountId), amount, null);
+            }
+            // Slots are being reconfigured; credit the receiver's row instead
+        }
 
-        while (true) {
-            try {
-                Account fromAccount = accountRepository.findById(fromAccountId)
-                        .orElseThrow(() -> new IllegalArgumentException("Source account not found: " + fromAccountId));
-                Account toAccount = accountRepository.findById(toAccountId)
-                        .orElseThrow(() -> new IllegalArgumentException("Destination account not found: " + toAccountId));
+        // Row locks (if any) are always taken lowest account id first
+        Account fromAccount;
+        Account toAccount;
+        if (fromAccountId < toAccountId) {
+            fromAccount = loadAccount(fromAccountId, "Source account not found: ");
+            toAccount = loadAccount(toAccountId, "Destination account not found: ");
+        } else {
+            toAccount = loadAccount(toAccountId, "Destination account not found: ");
+            fromAccount = loadAccount(fromAccountId, "Source account not found: ");
+        }
 
-                BigDecimal fromBal = fromAccount.getBalance() == null ? BigDecimal.ZERO : fromAccount.getBalance();
-                if (fromBal.compareTo(amount) < 0) {
-                    throw new IllegalStateException("Insufficient balance for transfer");
-                }
+        BigDecimal fromBal = debitableBalance(fromAccount, amount);
+        if (fromBal.compareTo(amount) < 0) {
+            throw new InsufficientBalanceException("Insufficient balance for transfer");
+        }
 
-                fromAccount.setBalance(fromBal.subtract(amount));
-                toAccount.setBalance(toAccount.getBalance() == null ? amount : toAccount.getBalance().add(amount));
+        fromAccount.setBalance(fromBal.subtract(amount));
+        toAccount.setBalance(toAccount.getBalance() == null ? amount : toAccount.getBalance().add(amount));
 
-                accountRepository.saveAndFlush(fromAccount);
-                accountRepository.saveAndFlush(toAccount);
-
-                Transaction debit = new Transaction();
-                debit.setAccount(fromAccount);
-                debit.setTransactionType("TRANSFER_SENT");
-                debit.setAmount(amount);
-                debit.setTimestamp(LocalDateTime.now());
-                debit.setStatus("SUCCESS");
-
-                Transaction credit = new Transaction();
-                credit.setAccount(toAccount);
-                credit.setTransactionType("TRANSFER_RECEIVED");
-                credit.setAmount(amount);
-                credit.setTimestamp(LocalDateTime.now());
-                credit.setStatus("SUCCESS");
-
-                transactionRepository.saveAndFlush(debit);
-                transactionRepository.saveAndFlush(credit);
-
-                System.out.println("✅ Transfer successful: " +
-                        fromAccountId + " → " + toAccountId + " | Amount: " + amount);
-                return;
-
-            } catch (OptimisticLockingFailureException | jakarta.persistence.OptimisticLockException e) {
-                if (++attempts >= MAX_RETRIES) throw new RuntimeException("Concurrent transfer failed after retries", e);
-                sleepBeforeRetry(attempts);
-            }
+        accountRepository.saveAndFlush(fromAccount);
+        accountRepository.saveAndFlush(toAccount);
+
+        return saveTransfer(fromAccount, toAccount, amount, runningBalance(toAccount));
+    }
+
+    // One row carries both legs; per-account views expand it on read
+    private Transaction saveTransfer(Account fromAccount, Account toAccount, BigDecimal amount,
+                                     BigDecimal destinationBalanceAfter) {
+        Transaction tx = new Transaction();
+        tx.setAccount(fromAccount);
+        tx.setSourceAccount(fromAccount);
+        tx.setDestinationAccount(toAccount);
+        tx.setTransactionType("TRANSFER");
+        tx.setAmount(amount);
+        tx.setTimestamp(LocalDateTime.now());
+        tx.setStatus("SUCCESS");
+        tx.setBalanceAfter(runningBalance(fromAccount));
+        tx.setDestinationBalanceAfter(destinationBalanceAfter);
+
+        return transactionRepository.saveAndFlush(tx);
+    }
+
+    // ================== BATCHED SUBMIT ==================
+    /**
+     * Asynchronous posting for bulk callers. Goes through the partitioned engine when that
+     * mode is active, otherwise through the group-commit engine (its versioned batch updates
+     * are safe next to the direct path, and it folds a hot account's slots before a debit as
+     * the direct path does), so bulk work is always JDBC-batched.
+     * Postings for the same account are applied in submission order.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CompletableFuture<Transaction> submit(Posting posting) {
+        validateAmount(posting.amount());
+        if (posting.kind() == Posting.Kind.TRANSFER && posting.accountId().equals(posting.targetAccountId())) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
         }
+        return postingMode == PostingMode.PARTITIONED
+                ? partitionedEngine.submit(posting)
+                : groupCommitEngine.submit(posting);
     }
 
     // ================== LOG TRANSACTION ==================
@@ -183,13 +347,159 @@ public class BankTransactionService {
     }
 
     // ================== HELPERS ==================
+    private static List<Transaction> mergeNewestFirst(List<Transaction> sent, List<Transaction> received) {
+        List<Transaction> merged = new ArrayList<>(sent.size() + received.size());
+        int i = 0, j = 0;
+        while (i < sent.size() || j < received.size()) {
+            boolean takeSent = j >= received.size()
+                    || (i < sent.size() && !sent.get(i).getTimestamp().isBefore(received.get(j).getTimestamp()));
+            merged.add(takeSent ? asLeg(sent.get(i++), false) : asLeg(received.get(j++), true));
+        }
+        return merged;
+    }
+
+    // Newest-first order by (timestamp, transactionId); ties keep the sent leg first
+    private static boolean isOlder(Transaction a, Transaction b) {
+        int byTime = a.getTimestamp().compareTo(b.getTimestamp());
+        return byTime != 0 ? byTime < 0 : a.getTransactionId() < b.getTransactionId();
+    }
+
+    // Detached copy so the managed entity is never modified by a read
+    private static Transaction asLeg(Transaction tx, boolean received) {
+        if (!"TRANSFER".equals(tx.getTransactionType())) {
+            return tx;
+        }
+        Transaction leg = new Transaction();
+        leg.setTransactionId(tx.getTransactionId());
+        leg.setAccount(received ? tx.getDestinationAccount() : tx.getAccount());
+        leg.setSourceAccount(tx.getSourceAccount());
+        leg.setDestinationAccount(tx.getDestinationAccount());
+        leg.setTransactionType(received ? "TRANSFER_RECEIVED" : "TRANSFER_SENT");
+        leg.setAmount(tx.getAmount());
+        leg.setTimestamp(tx.getTimestamp());
+        leg.setStatus(tx.getStatus());
+        leg.setJournalSequence(tx.getJournalSequence());
+        leg.setBalanceAfter(received ? tx.getDestinationBalanceAfter() : tx.getBalanceAfter());
+        return leg;
+    }
+
+    // A sharded account's slots are folded into its row (inside the posting's transaction) only
+    // when the row alone can't cover the debit
+    private BigDecimal debitableBalance(Account account, BigDecimal amount) {
+        BigDecimal balance = account.getBalance() == null ? BigDecimal.ZERO : account.getBalance();
+        if (balance.compareTo(amount) < 0 && hotAccounts.isSharded(account.getAccountId())) {
+            balance = balance.add(hotAccounts.drainSlots(account.getAccountId()));
+            account.setBalance(balance);
+        }
+        return balance;
+    }
+
+    // A sharded account's row is only part of its balance, so its postings carry no running balance
+    private BigDecimal runningBalance(Account account) {
+        return hotAccounts.isSharded(account.getAccountId()) ? null : account.getBalance();
+    }
+
+    // Credits to a sharded account land on a slot row, so they don't need its stripe
+    private Long[] stripeIds(Posting posting) {
+        return switch (posting.kind()) {
+            case DEPOSIT -> hotAccounts.isSharded(posting.accountId())
+                    ? new Long[0] : new Long[]{posting.accountId()};
+            case WITHDRAW -> new Long[]{posting.accountId()};
+            case TRANSFER -> hotAccounts.isSharded(posting.targetAccountId())
+                    ? new Long[]{posting.accountId()} : new Long[]{posting.accountId(), posting.targetAccountId()};
+        };
+    }
+
     private void validateAmount(BigDecimal amount) {
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Amount must be positive");
         }
     }
 
+    // One posting in its own transaction, retried on optimistic-lock conflicts (and on the rare
+    // deadlock between two sharded accounts' slot locks); timed, classified for the metrics and
+    // audited whichever way it ends
+    private Transaction postDirect(Posting posting, String exhaustedMessage, Supplier<Transaction> work) {
+        Long[] accountIds = stripeIds(posting);
+        long start = System.nanoTime();
+        Transaction result = null;
+        int attempts = 0;
+        PostingContentionMetrics.Outcome outcome = PostingContentionMetrics.Outcome.ERROR;
+        try {
+            while (true) {
+                attempts++;
+                try {
+                    result = inPostingTransaction(work, accountIds);
+                    outcome = PostingContentionMetrics.Outcome.SUCCESS;
+                    return result;
+                } catch (OptimisticLockingFailureException | jakarta.persistence.OptimisticLockException
+                         | PessimisticLockingFailureException e) {
+                    contentionMetrics.recordConflict(posting.kind());
+                    if (attempts >= MAX_RETRIES) {
+                        outcome = PostingContentionMetrics.Outcome.RETRIES_EXHAUSTED;
+                        throw retriesExhausted(exhaustedMessage, e);
+                    }
+                    sleepBeforeRetry(attempts);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (outcome != PostingContentionMetrics.Outcome.RETRIES_EXHAUSTED) {
+                outcome = PostingContentionMetrics.Outcome.of(e);
+            }
+            throw e;
+        } finally {
+            recordPosting(posting, outcome, result, attempts, System.nanoTime() - start);
+        }
+    }
+
+    private <T> T inPostingTransaction(Supplier<T> work, Long... accountIds) {
+        if (concurrency == PostingConcurrency.ORDERED_LOCKING) {
+            // JVM stripes first, outside the DB transaction, so queued callers don't pin pooled connections
+            return lockStripes.withLocks(() -> postingTransaction.execute(status -> work.get()), accountIds);
+        }
+        return postingTransaction.execute(status -> work.get());
+    }
+
+    private Account loadAccount(Long accountId, String notFoundMessage) {
+        Optional<Account> account = concurrency == PostingConcurrency.ORDERED_LOCKING
+                ? accountRepository.findByIdForUpdate(accountId)
+                : accountRepository.findById(accountId);
+        return account.orElseThrow(() -> new IllegalArgumentException(notFoundMessage + accountId));
+    }
+
+    private RuntimeException retriesExhausted(String message, RuntimeException cause) {
+        contentionMetrics.recordRetriesExhausted();
+        return new RuntimeException(message, cause);
+    }
+
+    private Transaction awaitPosting(Posting posting) {
+        long start = System.nanoTime();
+        Transaction tx = null;
+        PostingContentionMetrics.Outcome outcome = PostingContentionMetrics.Outcome.ERROR;
+        try {
+            tx = submit(posting).join();
+            outcome = PostingContentionMetrics.Outcome.SUCCESS;
+            return tx;
+        } catch (CompletionException e) {
+            RuntimeException cause = e.getCause() instanceof RuntimeException r ? r : e;
+            outcome = PostingContentionMetrics.Outcome.of(cause);
+            throw cause;
+        } catch (RuntimeException e) {
+            outcome = PostingContentionMetrics.Outcome.of(e);
+            throw e;
+        } finally {
+            recordPosting(posting, outcome, tx, 0, System.nanoTime() - start);
+        }
+    }
+
+    private void recordPosting(Posting posting, PostingContentionMetrics.Outcome outcome, Transaction tx,
+                               int attempts, long nanos) {
+        contentionMetrics.recordPosting(posting.kind(), outcome, attempts, nanos);
+        auditLog.posting(posting, outcome.name(), tx, nanos);
+    }
+
     private void sleepBeforeRetry(int attempt) {
+        contentionMetrics.recordRetry();
         try {
             Thread.sleep(100L * attempt);
         } catch (InterruptedException ignored) {
@@ -0,0 +1,327 @@
+package org.bank.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk payment ingestion (payroll runs, batch transfers).
+ *
+ * An uploaded CSV of {@code from,to,amount} rows is streamed line by line, so memory use
+ * does not depend on file size. Valid rows are grouped by source account onto a fixed set
+ * of worker lanes (same source account, same lane, so its rows keep file order). Each lane
+ * submits its transfers through {@link BankTransactionService#submit}, the JDBC-batched
+ * path, keeping a bounded number in flight. Every row gets a line in a CSV result report,
+ * written by a report thread of its own: postings complete on the engine's committer thread,
+ * which must not wait on file I/O.
+ */
+@Service
+public class BulkPaymentService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkPaymentService.class);
+
+    private static final String REPORT_HEADER = "row,from_account,to_account,amount,status,transaction_id,message";
+    private static final Row END_OF_FILE = new Row(-1, null, null, null);
+
+    private final BankTransactionService transactionService;
+    private final Path workDirectory;
+    private final int laneCount;
+    private final int inFlightPerLane;
+
+    private final ExecutorService jobRunner;
+    private final ExecutorService lanes;
+    private final ExecutorService reportWriter;
+    private final Map<String, BulkPaymentJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BulkPaymentService(BankTransactionService transactionService,
+                              WorkerThreads workerThreads,
+                              @Value("${bank.bulk.work-dir:bulk-payments}") String workDirectory,
+                              @Value("${bank.bulk.workers:8}") int laneCount,
+                              @Value("${bank.bulk.in-flight-per-worker:256}") int inFlightPerLane) {
+        this.transactionService = transactionService;
+        this.workDirectory = Paths.get(workDirectory);
+        this.laneCount = laneCount;
+        this.inFlightPerLane = inFlightPerLane;
+        this.jobRunner = Executors.newSingleThreadExecutor(workerThreads.factory("bulk-payment-reader"));
+        this.lanes = Executors.newFixedThreadPool(laneCount, workerThreads.factory("bulk-payment-lane"));
+        this.reportWriter = Executors.newSingleThreadExecutor(workerThreads.factory("bulk-payment-report"));
+    }
+
+    /**
+     * Copy the upload to the work directory and start processing it in the background.
+     * Jobs run one at a time; the returned job can be polled for progress.
+     */
+    public BulkPaymentJob start(InputStream upload, String originalName) {
+        String id = UUID.randomUUID().toString();
+        try {
+            Files.createDirectories(workDirectory);
+            Path input = workDirectory.resolve(id + ".csv");
+            Files.copy(upload, input);
+
+            BulkPaymentJob job = new BulkPaymentJob(id, originalName, workDirectory.resolve(id + "-report.csv"));
+            jobs.put(id, job);
+            jobRunner.submit(() -> run(job, input));
+            return job;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store bulk payment upload", e);
+        }
+    }
+
+    public Optional<BulkPaymentJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public Collection<BulkPaymentJob> findAll() {
+        return jobs.values();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobRunner.shutdownNow();
+        lanes.shutdownNow();
+        reportWriter.shutdownNow();
+    }
+
+    // ================== JOB ==================
+    private void run(BulkPaymentJob job, Path input) {
+        job.status = "RUNNING";
+        long startNanos = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter report = Files.newBufferedWriter(job.reportPath, StandardCharsets.UTF_8)) {
+            report.write(REPORT_HEADER);
+            report.newLine();
+            ReportWriter out = new ReportWriter(report, reportWriter);
+            try {
+                List<BlockingQueue<Row>> laneQueues = new ArrayList<>(laneCount);
+                List<Future<?>> laneTasks = new ArrayList<>(laneCount);
+                for (int i = 0; i < laneCount; i++) {
+                    BlockingQueue<Row> queue = new ArrayBlockingQueue<>(inFlightPerLane * 2);
+                    laneQueues.add(queue);
+                    laneTasks.add(lanes.submit(() -> runLane(queue, job, out)));
+                }
+
+                long rowNumber = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    rowNumber++;
+                    if (line.isBlank() || (rowNumber == 1 && !Character.isDigit(line.strip().charAt(0)))) {
+                        continue; // blank line or header
+                    }
+                    job.rowsRead.incrementAndGet();
+                    try {
+                        Row row = parse(rowNumber, line);
+                        laneQueues.get(Math.floorMod(Long.hashCode(row.from()), laneCount)).put(row);
+                    } catch (IllegalArgumentException e) {
+                        job.rejected.incrementAndGet();
+                        out.write(rowNumber, line, "REJECTED", null, e.getMessage());
+                    }
+                }
+
+                for (BlockingQueue<Row> queue : laneQueues) {
+                    queue.put(END_OF_FILE);
+                }
+                for (Future<?> task : laneTasks) {
+                    task.get();
+                }
+            } finally {
+                out.close();
+            }
+            job.status = "COMPLETED";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.status = "INTERRUPTED";
+        } catch (Exception e) {
+            job.status = "FAILED: " + e.getMessage();
+            log.error("Bulk payment job {} failed", job.id, e);
+        } finally {
+            job.elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+            job.finishedAt = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(input);
+            } catch (IOException ignored) {
+                // left for manual cleanup
+            }
+        }
+    }
+
+    private void runLane(BlockingQueue<Row> queue, BulkPaymentJob job, ReportWriter out) {
+        Semaphore window = new Semaphore(inFlightPerLane);
+        try {
+            while (true) {
+                Row row = queue.take();
+                if (row == END_OF_FILE) break;
+
+                window.acquire();
+                try {
+                    transactionService.submit(Posting.transfer(row.from(), row.to(), row.amount()))
+                            .whenComplete((tx, error) -> {
+                                try {
+                                    if (error == null) {
+                                        job.succeeded.incrementAndGet();
+                                        out.write(row, "OK", tx.getTransactionId(), "");
+                                    } else {
+                                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                                        job.failed.incrementAndGet();
+                                        out.write(row, "FAILED", null, cause.getMessage());
+                                    }
+                                } finally {
+                                    window.release();
+                                }
+                            });
+                } catch (RuntimeException e) {
+                    window.release();
+                    job.failed.incrementAndGet();
+                    out.write(row, "FAILED", null, e.getMessage());
+                }
+            }
+            // Wait for this lane's outstanding postings before reporting the job done
+            window.acquire(inFlightPerLane);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Row parse(long rowNumber, String line) {
+        String[] cols = line.split(",");
+        if (cols.length != 3) {
+            throw new IllegalArgumentException("Expected 3 columns: from,to,amount");
+        }
+        long from;
+        long to;
+        BigDecimal amount;
+        try {
+            from = Long.parseLong(cols[0].strip());
+            to = Long.parseLong(cols[1].strip());
+            amount = new BigDecimal(cols[2].strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed number");
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (from == to) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        return new Row(rowNumber, from, to, amount);
+    }
+
+    private record Row(long number, Long from, Long to, BigDecimal amount) {}
+
+    /**
+     * Report lines arrive from many threads in completion order; the row number keeps them traceable.
+     * Writers only queue a line, so a posting's completion never blocks on the file; one report
+     * thread owns the writer.
+     */
+    private static final class ReportWriter {
+        private static final ReportLine END_OF_REPORT = new ReportLine(null);
+
+        private final BlockingQueue<ReportLine> lines = new LinkedBlockingQueue<>();
+        private final Future<?> drain;
+
+        ReportWriter(BufferedWriter writer, ExecutorService reportThread) {
+            this.drain = reportThread.submit(() -> {
+                drain(writer);
+                return null;
+            });
+        }
+
+        void write(Row row, String status, Long transactionId, String message) {
+            write(row.number(), row.from() + "," + row.to() + "," + row.amount(), status, transactionId, message);
+        }
+
+        void write(long rowNumber, String columns, String status, Long transactionId, String message) {
+            lines.add(new ReportLine(rowNumber + "," + columns.replace('\n', ' ') + "," + status + ","
+                    + (transactionId == null ? "" : transactionId) + ","
+                    + (message == null ? "" : '"' + message.replace("\"", "'") + '"')));
+        }
+
+        /** Waits until every line queued so far is written. */
+        void close() throws InterruptedException, ExecutionException {
+            lines.add(END_OF_REPORT);
+            drain.get();
+        }
+
+        private void drain(BufferedWriter writer) throws IOException, InterruptedException {
+            while (true) {
+                ReportLine line = lines.take();
+                if (line == END_OF_REPORT) return;
+                writer.write(line.text());
+                writer.newLine();
+            }
+        }
+    }
+
+    private record ReportLine(String text) {}
+
+    /** Progress and outcome of one uploaded file. */
+    public static final class BulkPaymentJob {
+        private final String id;
+        private final String fileName;
+        private final Path reportPath;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile String status = "QUEUED";
+        private volatile LocalDateTime finishedAt;
+        private volatile Duration elapsed;
+
+        BulkPaymentJob(String id, String fileName, Path reportPath) {
+            this.id = id;
+            this.fileName = fileName;
+            this.reportPath = reportPath;
+        }
+
+        public String getId() { return id; }
+        public String getFileName() { return fileName; }
+        public String getStatus() { return status; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public long getRowsRead() { return rowsRead.get(); }
+        public long getSucceeded() { return succeeded.get(); }
+        public long getRejected() { return rejected.get(); }
+        public long getFailed() { return failed.get(); }
+        public Path reportPath() { return reportPath; }
+
+        public double getRowsPerSecond() {
+            Duration d = elapsed;
+            if (d == null || d.isZero()) return 0;
+            return (succeeded.get() + failed.get() + rejected.get()) / (d.toNanos() / 1e9);
+        }
+    }
+}
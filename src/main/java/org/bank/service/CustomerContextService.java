@@ -0,0 +1,118 @@
+package org.bank.service;
+
+import jakarta.servlet.http.HttpSession;
+import org.bank.dto.CustomerContext;
+import org.bank.dto.CustomerHeader;
+import org.bank.entities.User;
+import org.bank.repository.AccountRepository;
+import org.bank.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds and caches the {@link CustomerContext} behind {@code @CurrentCustomer}.
+ *
+ * The context lives in the HTTP session and is rebuilt when it is older than
+ * {@code bank.customer-context.ttl-seconds}, when the session belongs to someone else, or
+ * after {@link #refresh} (called by whatever changes accounts or the profile). Work finishing
+ * outside the request, like photo processing, uses {@link #evict} to outdate every session's copy.
+ */
+@Service
+public class CustomerContextService {
+
+    static final String SESSION_ATTRIBUTE = CustomerContextService.class.getName() + ".context";
+
+    private final UserCache userCache;
+    private final CustomerRepository customerRepository;
+    private final AccountRepository accountRepository;
+    private final Duration ttl;
+
+    // customerId -> when it last changed outside a request; entries older than the TTL are dropped
+    private final Map<Long, Long> changedAt = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CustomerContextService(UserCache userCache,
+                                  CustomerRepository customerRepository,
+                                  AccountRepository accountRepository,
+                                  @Value("${bank.customer-context.ttl-seconds:300}") long ttlSeconds) {
+        this.userCache = userCache;
+        this.customerRepository = customerRepository;
+        this.accountRepository = accountRepository;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    /** Context for the signed-in caller, or null when there is none. */
+    public CustomerContext current(Authentication authentication, HttpSession session) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || "anonymousUser".equals(authentication.getPrincipal())) {
+            return null;
+        }
+        String username = authentication.getName();
+
+        if (session != null && session.getAttribute(SESSION_ATTRIBUTE) instanceof Cached cached
+                && cached.context().username().equals(username)
+                && System.currentTimeMillis() < cached.expiresAtMillis()
+                && !changedSince(cached)) {
+            return cached.context();
+        }
+
+        CustomerContext context = resolve(username).orElse(null);
+        if (session != null) {
+            if (context == null) {
+                session.removeAttribute(SESSION_ATTRIBUTE);
+            } else {
+                long now = System.currentTimeMillis();
+                session.setAttribute(SESSION_ATTRIBUTE, new Cached(context, now, now + ttl.toMillis()));
+            }
+        }
+        return context;
+    }
+
+    /** Drop the cached context so the next request rebuilds it. */
+    public void refresh(HttpSession session) {
+        if (session != null) {
+            session.removeAttribute(SESSION_ATTRIBUTE);
+        }
+    }
+
+    /** Outdate the cached context of {@code customerId} in every session. */
+    public void evict(Long customerId) {
+        if (customerId == null) return;
+        long now = System.currentTimeMillis();
+        changedAt.put(customerId, now);
+        changedAt.values().removeIf(at -> now - at > ttl.toMillis());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<CustomerContext> resolve(String username) {
+        Optional<User> user = userCache.findByUsername(username);
+        if (user.isEmpty()) return Optional.empty();
+
+        User u = user.get();
+        CustomerHeader header = customerRepository.findHeaderByUserId(u.getId()).orElse(null);
+        List<Long> accountIds = header == null ? List.of() : accountRepository.findIdsByCustomerId(header.customerId());
+        return Optional.of(new CustomerContext(
+                u.getId(), u.getUsername(), u.getRole(),
+                header == null ? null : header.customerId(),
+                header == null ? null : header.name(),
+                header != null && header.hasProfilePhoto(),
+                accountIds));
+    }
+
+    private boolean changedSince(Cached cached) {
+        Long at = cached.context().customerId() == null ? null : changedAt.get(cached.context().customerId());
+        return at != null && at >= cached.builtAtMillis();
+    }
+
+    private record Cached(CustomerContext context, long builtAtMillis, long expiresAtMillis) implements Serializable {}
+}
@@ -1,8 +1,12 @@
 package org.bank.service;
 
+import org.bank.dto.CustomerSummary;
 import org.bank.entities.Customer;
 import org.bank.entities.User;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +16,14 @@ public interface CustomerService {
 
     Optional<Customer> findById(Long id);
 
+    // Proxy for use as an association target; no query is issued
+    Customer getReference(Long id);
+
+    // Admin listings: projections only, never the profile photo
+    Page<CustomerSummary> findSummaries(String search, Pageable pageable);
+
+    long count();
+
     Customer save(Customer customer);
 
     User save(User user);
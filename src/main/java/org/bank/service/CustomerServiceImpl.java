@@ -1,10 +1,14 @@
 package org.bank.service;
 
+import org.bank.dto.CustomerSummary;
 import org.bank.entities.Customer;
 import org.bank.entities.User;
 import org.bank.repository.CustomerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -29,6 +33,23 @@ public class CustomerServiceImpl implements CustomerService {
         return customerRepository.findById(id);
     }
 
+    @Override
+    public Customer getReference(Long id) {
+        return customerRepository.getReferenceById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<CustomerSummary> findSummaries(String search, Pageable pageable) {
+        String pattern = search == null || search.isBlank() ? null : "%" + search.trim().toLowerCase() + "%";
+        return customerRepository.findSummaries(pattern, pageable);
+    }
+
+    @Override
+    public long count() {
+        return customerRepository.count();
+    }
+
     @Override
     public Customer save(Customer customer) {
         return customerRepository.save(customer);
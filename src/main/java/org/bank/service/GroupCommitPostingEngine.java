@@ -0,0 +1,409 @@
+package org.bank.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.bank.config.SecondLevelCache;
+import org.bank.entities.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit posting engine.
+ *
+ * Callers enqueue postings and get a future back. A single committer thread drains the
+ * queue in micro-batches (bounded by a time window and a maximum size) and commits each
+ * batch in one DB transaction: one SELECT for the touched accounts, one JDBC batch of
+ * versioned balance updates and one JDBC batch of transaction inserts.
+ *
+ * Postings are applied in arrival order, so per-account order is kept. A posting that
+ * fails validation (unknown account, insufficient balance) fails only its own future;
+ * the rest of the batch still commits.
+ *
+ * Hot accounts sharded by {@link HotAccountBalances} keep part of their balance in slots. A
+ * debit the row alone can't cover folds the slots into the row first, inside the batch
+ * transaction, as the direct path does; their rows carry no running balance.
+ */
+@Component
+public class GroupCommitPostingEngine {
+
+    private static final int MAX_RETRIES = 3;
+
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE accounts SET balance = ?, version = version + 1 WHERE account_id = ? AND version = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionBatchWriter rowWriter;
+    private final SecondLevelCache secondLevelCache;
+    private final HotAccountBalances hotAccounts;
+    private final TransactionTemplate transactionTemplate;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Timer batchCommit;
+    private final DistributionSummary batchSize;
+
+    private final LinkedBlockingQueue<PendingPosting> queue = new LinkedBlockingQueue<>();
+    private volatile boolean running = true;
+    private Thread committer;
+
+    @Autowired
+    public GroupCommitPostingEngine(JdbcTemplate jdbcTemplate,
+                                    TransactionBatchWriter rowWriter,
+                                    SecondLevelCache secondLevelCache,
+                                    HotAccountBalances hotAccounts,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${bank.posting.group-commit.window-ms:5}") long windowMillis,
+                                    @Value("${bank.posting.group-commit.max-batch:256}") int maxBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.rowWriter = rowWriter;
+        this.secondLevelCache = secondLevelCache;
+        this.hotAccounts = hotAccounts;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.batchCommit = Timer.builder("bank.posting.batch.commit")
+                .description("One engine batch: balance updates and transaction rows in one DB transaction")
+                .tag("engine", "group-commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("bank.posting.batch.size")
+                .description("Postings per committed engine batch")
+                .tag("engine", "group-commit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue a posting for the next commit window. The future completes after the batch
+     * containing it has committed; for transfers it carries the single transfer row.
+     */
+    public CompletableFuture<Transaction> submit(Posting posting) {
+        if (!running) {
+            throw new IllegalStateException("Posting engine is shut down");
+        }
+        startIfNeeded();
+        PendingPosting pending = new PendingPosting(posting, new CompletableFuture<>());
+        queue.add(pending);
+        return pending.result();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        Thread thread;
+        synchronized (this) {
+            thread = committer;
+        }
+        if (thread != null) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private synchronized void startIfNeeded() {
+        if (committer == null) {
+            committer = new Thread(this::runCommitter, "posting-group-commit");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    // ================== COMMITTER LOOP ==================
+    private void runCommitter() {
+        List<PendingPosting> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPosting first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingPosting next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                commitWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                batch.forEach(p -> p.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        PendingPosting leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.result().completeExceptionally(new IllegalStateException("Posting engine is shut down"));
+        }
+    }
+
+    // A version conflict means someone outside the engine touched those accounts. Only the postings
+    // behind them are reloaded and retried, after a backoff; the rest of the batch commits at once
+    private void commitWithRetry(List<PendingPosting> batch) {
+        List<PendingPosting> attempt = batch;
+        int conflicts = 0;
+        while (true) {
+            try {
+                commit(attempt);
+                return;
+            } catch (VersionConflictException e) {
+                List<PendingPosting> affected = new ArrayList<>();
+                List<PendingPosting> clear = new ArrayList<>();
+                splitByAccounts(attempt, e.accountIds, affected, clear);
+                if (!clear.isEmpty()) {
+                    commitWithRetry(clear);
+                }
+                if (++conflicts >= MAX_RETRIES) {
+                    RuntimeException failure = new RuntimeException("Concurrent posting failed after retries", e);
+                    affected.forEach(p -> p.result().completeExceptionally(failure));
+                    return;
+                }
+                sleepBeforeRetry(conflicts);
+                attempt = affected;
+            }
+        }
+    }
+
+    private void commit(List<PendingPosting> batch) {
+        List<Object> outcomes = batchCommit.record(() -> transactionTemplate.execute(status -> applyBatch(batch)));
+        batchSize.record(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Object outcome = outcomes.get(i);
+            if (outcome instanceof RuntimeException e) {
+                batch.get(i).result().completeExceptionally(e);
+            } else {
+                batch.get(i).result().complete((Transaction) outcome);
+            }
+        }
+    }
+
+    // A posting that touches a conflicting account is affected, and so is every later posting sharing
+    // an account with an affected one, so per-account order holds across the two halves
+    private static void splitByAccounts(List<PendingPosting> batch, Set<Long> conflicting,
+                                        List<PendingPosting> affected, List<PendingPosting> clear) {
+        Set<Long> held = new HashSet<>(conflicting);
+        for (PendingPosting pending : batch) {
+            Posting posting = pending.posting();
+            Long target = posting.targetAccountId();
+            if (held.contains(posting.accountId()) || (target != null && held.contains(target))) {
+                held.add(posting.accountId());
+                if (target != null) held.add(target);
+                affected.add(pending);
+            } else {
+                clear.add(pending);
+            }
+        }
+    }
+
+    private void sleepBeforeRetry(int conflicts) {
+        try {
+            Thread.sleep(Math.max(1, TimeUnit.NANOSECONDS.toMillis(windowNanos)) * conflicts);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ================== BATCH APPLY ==================
+    private List<Object> applyBatch(List<PendingPosting> batch) {
+        Map<Long, AccountState> accounts = loadAccounts(batch);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Object> outcomes = new ArrayList<>(batch.size());
+        List<Transaction> rows = new ArrayList<>(batch.size() + 8);
+
+        for (PendingPosting pending : batch) {
+            try {
+                outcomes.add(apply(pending.posting(), accounts, rows, now));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                outcomes.add(e);
+            }
+        }
+
+        updateBalances(accounts.values().stream().filter(AccountState::isDirty).toList());
+        rowWriter.insert(rows);
+        return outcomes;
+    }
+
+    private Transaction apply(Posting posting, Map<Long, AccountState> accounts,
+                              List<Transaction> rows, LocalDateTime now) {
+        AccountState account = require(accounts, posting.accountId(),
+                posting.kind() == Posting.Kind.TRANSFER ? "Source account not found: " : "Account not found: ");
+        BigDecimal amount = posting.amount();
+
+        switch (posting.kind()) {
+            case DEPOSIT -> {
+                account.balance = account.balance.add(amount);
+                account.dirty = true;
+                return addRow(rows, account, "DEPOSIT", amount, now);
+            }
+            case WITHDRAW -> {
+                if (debitable(account, amount).compareTo(amount) < 0) {
+                    throw new InsufficientBalanceException("Insufficient balance for withdrawal");
+                }
+                account.balance = account.balance.subtract(amount);
+                account.dirty = true;
+                return addRow(rows, account, "WITHDRAW", amount, now);
+            }
+            case TRANSFER -> {
+                AccountState target = require(accounts, posting.targetAccountId(), "Destination account not found: ");
+                if (debitable(account, amount).compareTo(amount) < 0) {
+                    throw new InsufficientBalanceException("Insufficient balance for transfer");
+                }
+                account.balance = account.balance.subtract(amount);
+                target.balance = target.balance.add(amount);
+                account.dirty = true;
+                target.dirty = true;
+                Transaction tx = TransactionBatchWriter.transferRow(account.id, account.runningBalance(),
+                        target.id, target.runningBalance(), amount, now);
+                rows.add(tx);
+                return tx;
+            }
+            default -> throw new IllegalArgumentException("Unsupported posting: " + posting.kind());
+        }
+    }
+
+    private Map<Long, AccountState> loadAccounts(List<PendingPosting> batch) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (PendingPosting pending : batch) {
+            ids.add(pending.posting().accountId());
+            if (pending.posting().targetAccountId() != null) {
+                ids.add(pending.posting().targetAccountId());
+            }
+        }
+
+        Map<Long, AccountState> accounts = new LinkedHashMap<>();
+        namedJdbcTemplate.query(
+                "SELECT account_id, balance, version FROM accounts WHERE account_id IN (:ids)",
+                Map.of("ids", ids),
+                rs -> {
+                    long id = rs.getLong("account_id");
+                    AccountState state = new AccountState(id, rs.getBigDecimal("balance"), rs.getLong("version"),
+                            hotAccounts.isSharded(id));
+                    accounts.put(state.id, state);
+                });
+        return accounts;
+    }
+
+    private void updateBalances(List<AccountState> dirty) {
+        if (dirty.isEmpty()) return;
+
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                AccountState account = dirty.get(i);
+                ps.setBigDecimal(1, account.balance);
+                ps.setLong(2, account.id);
+                ps.setLong(3, account.version);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return dirty.size();
+            }
+        });
+
+        Set<Long> conflicting = new HashSet<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                conflicting.add(dirty.get(i).id);
+            }
+        }
+        if (!conflicting.isEmpty()) {
+            throw new VersionConflictException(conflicting);
+        }
+        secondLevelCache.evictAccounts(dirty.stream().map(account -> account.id).toList());
+    }
+
+    // ================== HELPERS ==================
+    // Slots are folded at most once per batch, and only when the row alone falls short
+    private BigDecimal debitable(AccountState account, BigDecimal amount) {
+        if (account.sharded && !account.folded && account.balance.compareTo(amount) < 0) {
+            account.balance = account.balance.add(hotAccounts.drainSlots(account.id));
+            account.folded = true;
+            account.dirty = true;
+        }
+        return account.balance;
+    }
+
+    private static AccountState require(Map<Long, AccountState> accounts, Long id, String message) {
+        AccountState state = accounts.get(id);
+        if (state == null) {
+            throw new IllegalArgumentException(message + id);
+        }
+        return state;
+    }
+
+    private static Transaction addRow(List<Transaction> rows, AccountState account,
+                                      String type, BigDecimal amount, LocalDateTime now) {
+        Transaction tx = TransactionBatchWriter.successRow(account.id, account.runningBalance(), type, amount, now);
+        rows.add(tx);
+        return tx;
+    }
+
+    /** Rolls the batch back; names the accounts whose version moved under it. */
+    private static final class VersionConflictException extends OptimisticLockingFailureException {
+        final Set<Long> accountIds;
+
+        VersionConflictException(Set<Long> accountIds) {
+            super("Account version changed during group commit: " + accountIds);
+            this.accountIds = accountIds;
+        }
+    }
+
+    private record PendingPosting(Posting posting, CompletableFuture<Transaction> result) {}
+
+    private static final class AccountState {
+        final long id;
+        final long version;
+        final boolean sharded;
+        BigDecimal balance;
+        boolean dirty;
+        boolean folded;
+
+        AccountState(long id, BigDecimal balance, long version, boolean sharded) {
+            this.id = id;
+            this.balance = balance == null ? BigDecimal.ZERO : balance;
+            this.version = version;
+            this.sharded = sharded;
+        }
+
+        // A sharded account's row is only part of its balance
+        BigDecimal runningBalance() {
+            return sharded ? null : balance;
+        }
+
+        boolean isDirty() {
+            return dirty;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.bank.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bank.entities.AccountBalanceSlot;
+import org.bank.repository.AccountBalanceSlotRepository;
+import org.bank.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Balance sharding for hot accounts (e.g. a merchant account many customers pay into).
+ *
+ * A sharded account keeps part of its balance in {@code balance_slots} rows of
+ * {@code account_balance_slots}. Credits add to one random slot with an in-place increment, so
+ * they never touch the account row or its version and concurrent credits rarely wait on each
+ * other. Debits still go through the account row; when its own balance is short the slots are
+ * folded into it first. The balance is always the row plus the sum of its slots.
+ *
+ * Only the direct posting mode shards: the group-commit and partitioned engines already
+ * serialize postings per account, so in those modes every slot is folded back at startup and
+ * postings use the account row alone.
+ */
+@Service
+@Order(0)
+public class HotAccountBalances implements ApplicationRunner, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(HotAccountBalances.class);
+
+    public static final int MAX_SLOTS = 64;
+
+    private final AccountRepository accountRepository;
+    private final AccountBalanceSlotRepository slotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean active;
+
+    // accountId -> slot count; replaced wholesale, never modified in place
+    private volatile Map<Long, Integer> slotsByAccount = Map.of();
+
+    private final LongAdder slotCredits = new LongAdder();
+    private final LongAdder folds = new LongAdder();
+
+    @Autowired
+    public HotAccountBalances(AccountRepository accountRepository,
+                              AccountBalanceSlotRepository slotRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${bank.posting.mode:direct}") String postingMode) {
+        this.accountRepository = accountRepository;
+        this.slotRepository = slotRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.active = PostingMode.fromProperty(postingMode) == PostingMode.DIRECT;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (active) {
+            refresh();
+            return;
+        }
+        List<Long> withBalance = slotRepository.findAccountIdsWithBalance();
+        withBalance.forEach(id -> transactionTemplate.executeWithoutResult(status -> fold(id)));
+        if (!withBalance.isEmpty()) {
+            log.info("Hot accounts: folded slots of {} accounts (sharding only applies to the direct posting mode)",
+                    withBalance.size());
+        }
+    }
+
+    /** Picks up accounts sharded or unsharded outside this instance. */
+    @Scheduled(fixedDelayString = "${bank.hot-accounts.refresh-ms:60000}",
+            initialDelayString = "${bank.hot-accounts.refresh-ms:60000}")
+    public void refresh() {
+        if (!active) return;
+        Map<Long, Integer> fresh = new HashMap<>();
+        for (Object[] row : accountRepository.findShardedAccounts()) {
+            fresh.put((Long) row[0], (Integer) row[1]);
+        }
+        slotsByAccount = Map.copyOf(fresh);
+    }
+
+    public boolean isSharded(Long accountId) {
+        return active && slotsByAccount.containsKey(accountId);
+    }
+
+    /**
+     * Adds {@code amount} to a random slot of the account, inside the caller's transaction.
+     * Returns false if the account is not sharded (or its slots are being reconfigured), in which
+     * case the caller credits the account row as usual.
+     */
+    public boolean credit(Long accountId, BigDecimal amount) {
+        Integer slots = active ? slotsByAccount.get(accountId) : null;
+        if (slots == null) return false;
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        if (slotRepository.credit(accountId, slot, amount) == 0) return false;
+        slotCredits.increment();
+        return true;
+    }
+
+    /**
+     * Locks the account's slots, zeroes them and returns what they held, inside the caller's
+     * transaction; the caller adds it to the account row.
+     */
+    public BigDecimal drainSlots(Long accountId) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (AccountBalanceSlot slot : slotRepository.findByAccountIdForUpdate(accountId)) {
+            if (slot.getBalance().signum() != 0) {
+                total = total.add(slot.getBalance());
+                slot.setBalance(BigDecimal.ZERO);
+            }
+        }
+        if (total.signum() != 0) folds.increment();
+        return total;
+    }
+
+    public BigDecimal slotBalance(Long accountId) {
+        return slotRepository.sumByAccountId(accountId);
+    }
+
+    // ================== CONFIGURATION ==================
+    /**
+     * Shards the account over {@code slots} credit slots, or unshards it when {@code slots} is
+     * 0 or 1. Whatever the old slots held is folded into the account row first.
+     */
+    @Transactional
+    public void configure(Long accountId, int slots) {
+        if (slots < 0 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Slots must be between 0 and " + MAX_SLOTS);
+        }
+        if (accountRepository.findByIdForUpdate(accountId).isEmpty()) {
+            throw new IllegalArgumentException("Account not found: " + accountId);
+        }
+        int count = slots > 1 ? slots : 0;
+
+        fold(accountId);
+        slotRepository.deleteAllInBatch(slotRepository.findByAccountIdForUpdate(accountId));
+        List<AccountBalanceSlot> fresh = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            fresh.add(new AccountBalanceSlot(null, accountId, i, BigDecimal.ZERO));
+        }
+        slotRepository.saveAll(fresh);
+        accountRepository.updateBalanceSlots(accountId, count);
+
+        // Credits that see the new count before commit find no slot row and fall back to the account row
+        Map<Long, Integer> updated = new HashMap<>(slotsByAccount);
+        if (count > 0) {
+            updated.put(accountId, count);
+        } else {
+            updated.remove(accountId);
+        }
+        slotsByAccount = Map.copyOf(updated);
+    }
+
+    private void fold(Long accountId) {
+        BigDecimal drained = drainSlots(accountId);
+        if (drained.signum() != 0) {
+            accountRepository.addToBalance(accountId, drained);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bank.hot.accounts", this, balances -> balances.slotsByAccount.size())
+                .description("Accounts whose credits are spread over balance slots")
+                .register(registry);
+        FunctionCounter.builder("bank.hot.account.slot.credits", slotCredits, LongAdder::sum)
+                .description("Credits applied to a balance slot")
+                .register(registry);
+        FunctionCounter.builder("bank.hot.account.folds", folds, LongAdder::sum)
+                .description("Times balance slots were folded into the account row")
+                .register(registry);
+    }
+}
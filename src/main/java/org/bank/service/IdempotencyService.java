@@ -0,0 +1,191 @@
+package org.bank.service;
+
+import org.bank.entities.IdempotencyRecord;
+import org.bank.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Duplicate protection for money-moving POSTs.
+ *
+ * A request carrying an idempotency key runs at most once per user and key. The key is
+ * reserved first, by inserting a PENDING row into {@code idempotency_keys}; only the request
+ * whose insert wins runs the action, and the row is then completed with its result. Replays
+ * return that result without touching {@link BankTransactionService}, from a bounded in-memory
+ * map (evicted by size and TTL) or from the table. A replay that arrives while the original is
+ * still running waits for it instead of running in parallel, on this instance or another.
+ *
+ * Only results are remembered. If the action throws (a conflict that outlasted its retries, a
+ * database outage), the reservation is released and the exception propagates, so a retry with
+ * the same key runs again. A key whose instance died while PENDING stays blocked until purged:
+ * whether that posting happened is unknown, and the safe answer is not to run it twice.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final long STORED_POLL_MILLIS = 100;
+
+    private final IdempotencyRecordRepository repository;
+    private final int maxEntries;
+    private final Duration memoryTtl;
+    private final Duration persistentTtl;
+    private final Duration inFlightWait;
+
+    private final Map<String, CachedResult> recent;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong storesSincePurge = new AtomicLong();
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              @Value("${bank.idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${bank.idempotency.memory-ttl-minutes:10}") long memoryTtlMinutes,
+                              @Value("${bank.idempotency.persistent-ttl-hours:24}") long persistentTtlHours,
+                              @Value("${bank.idempotency.in-flight-wait-seconds:30}") long inFlightWaitSeconds) {
+        this.repository = repository;
+        this.maxEntries = maxEntries;
+        this.memoryTtl = Duration.ofMinutes(memoryTtlMinutes);
+        this.persistentTtl = Duration.ofHours(persistentTtlHours);
+        this.inFlightWait = Duration.ofSeconds(inFlightWaitSeconds);
+        this.recent = new LinkedHashMap<>(256, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > IdempotencyService.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Run {@code action} once for {@code username} + {@code key} and return its result; later
+     * calls with the same key get that result back. Without a key the action simply runs. An
+     * exception from the action is not remembered: it propagates and the key is free again.
+     */
+    public String execute(String username, String key, String operation, Supplier<String> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String scopedKey = username + ":" + key.trim();
+
+        String cached = fromMemory(scopedKey);
+        if (cached != null) return cached;
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            return awaitOriginal(running);
+        }
+
+        try {
+            String result = repository.findById(scopedKey)
+                    .filter(stored -> !IdempotencyRecord.PENDING.equals(stored.getStatus()))
+                    .map(IdempotencyRecord::getResult)
+                    .orElseGet(() -> reserveAndRun(scopedKey, operation, action));
+            remember(scopedKey, result);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    private String reserveAndRun(String scopedKey, String operation, Supplier<String> action) {
+        try {
+            repository.reserve(scopedKey, operation, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            // Another instance reserved the key first; its result is the one to return
+            return awaitStored(scopedKey);
+        }
+
+        String result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            repository.release(scopedKey);
+            throw e;
+        }
+        repository.complete(scopedKey, result);
+        if (storesSincePurge.incrementAndGet() % 1000 == 0) {
+            purgeExpired();
+        }
+        return result;
+    }
+
+    // Polls the row another instance is completing; a released row means that attempt failed
+    private String awaitStored(String scopedKey) {
+        long deadline = System.nanoTime() + inFlightWait.toNanos();
+        while (true) {
+            Optional<IdempotencyRecord> stored = repository.findById(scopedKey);
+            if (stored.isEmpty()) {
+                throw new IllegalStateException("Original request failed; retry it");
+            }
+            if (!IdempotencyRecord.PENDING.equals(stored.get().getStatus())) {
+                return stored.get().getResult();
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw new IllegalStateException("Original request is still in progress");
+            }
+            try {
+                Thread.sleep(STORED_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the original request", e);
+            }
+        }
+    }
+
+    public int purgeExpired() {
+        return repository.deleteOlderThan(LocalDateTime.now().minus(persistentTtl));
+    }
+
+    private String awaitOriginal(CompletableFuture<String> running) {
+        try {
+            return running.get(inFlightWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        } catch (ExecutionException | CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("Original request failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Original request is still in progress", e);
+        }
+    }
+
+    private String fromMemory(String scopedKey) {
+        synchronized (recent) {
+            CachedResult entry = recent.get(scopedKey);
+            if (entry == null) return null;
+            if (entry.expiresAtNanos() - System.nanoTime() < 0) {
+                recent.remove(scopedKey);
+                return null;
+            }
+            return entry.result();
+        }
+    }
+
+    private void remember(String scopedKey, String result) {
+        synchronized (recent) {
+            recent.put(scopedKey, new CachedResult(result, System.nanoTime() + memoryTtl.toNanos()));
+        }
+    }
+
+    private record CachedResult(String result, long expiresAtNanos) {}
+}
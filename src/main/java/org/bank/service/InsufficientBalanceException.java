@@ -0,0 +1,13 @@
+package org.bank.service;
+
+/**
+ * A withdrawal or transfer larger than the balance it draws from. Still an
+ * {@link IllegalStateException}, so existing callers keep handling it as before;
+ * the separate type lets metrics tell these rejections apart from failures.
+ */
+public class InsufficientBalanceException extends IllegalStateException {
+
+    public InsufficientBalanceException(String message) {
+        super(message);
+    }
+}
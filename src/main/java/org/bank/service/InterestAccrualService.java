@@ -0,0 +1,318 @@
+package org.bank.service;
+
+import org.bank.entities.Transaction;
+import org.bank.repository.InterestAccrualRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Daily interest on SAVINGS accounts, at {@code bank.interest.savings-annual-rate} (actual/365,
+ * rounded half-even to cents) on the day's closing balance: the current balance (credit slots
+ * included) less everything posted after the day ended. Interest for earlier days counts as
+ * posted by then, whenever its row was written: on time it lands early the next day. A
+ * catch-up over several days therefore compounds, and a catch-up or rerun uses the same base
+ * as a run on the night itself.
+ *
+ * The id range of savings accounts is cut into chunks of {@code bank.interest.chunk-ids} ids,
+ * processed in parallel on {@code bank.interest.workers} threads. Each chunk is one short
+ * READ COMMITTED transaction that locks only its own savings rows (in ascending id order, like
+ * the posting paths), then writes JDBC batches: the INTEREST rows, the relative balance updates
+ * (which bump the version, so a racing optimistic posting retries) and one
+ * {@code interest_accruals} row per account. Accounts that already have an accrual row for the
+ * date are skipped and the table's unique key backs that up, so a run is idempotent per date and
+ * a rerun after a crash only does the chunks that didn't commit.
+ *
+ * Runs nightly for the days since the last accrual (at most {@link #MAX_CATCH_UP_DAYS}). Not
+ * run in the partitioned posting mode, where the engine must be the only balance writer.
+ */
+@Service
+public class InterestAccrualService {
+
+    private static final Logger log = LoggerFactory.getLogger(InterestAccrualService.class);
+
+    static final int MAX_CATCH_UP_DAYS = 31;
+    private static final BigDecimal DAYS_PER_YEAR = BigDecimal.valueOf(365);
+
+    private static final String LOCK_CHUNK_SQL =
+            "SELECT a.account_id, a.balance, a.balance_slots FROM accounts a "
+                    + "WHERE a.account_id >= ? AND a.account_id < ? AND a.account_type = 'SAVINGS' "
+                    + "AND NOT EXISTS (SELECT 1 FROM interest_accruals i "
+                    + "WHERE i.account_id = a.account_id AND i.accrual_date = ?) "
+                    + "ORDER BY a.account_id FOR UPDATE";
+    private static final String INSERT_ACCRUAL_SQL =
+            "INSERT INTO interest_accruals (account_id, accrual_date, balance, amount, transaction_id) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionBatchWriter rowWriter;
+    private final InterestAccrualRepository accrualRepository;
+    private final WorkerThreads workerThreads;
+    private final TransactionTemplate chunkTransaction;
+    private final PostingMode postingMode;
+    private final BigDecimal annualRate;
+    private final long chunkIds;
+    private final int workers;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Autowired
+    public InterestAccrualService(JdbcTemplate jdbcTemplate,
+                                  NamedParameterJdbcTemplate namedJdbcTemplate,
+                                  TransactionBatchWriter rowWriter,
+                                  InterestAccrualRepository accrualRepository,
+                                  WorkerThreads workerThreads,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${bank.posting.mode:direct}") String postingMode,
+                                  @Value("${bank.interest.savings-annual-rate:0.035}") BigDecimal annualRate,
+                                  @Value("${bank.interest.chunk-ids:500}") long chunkIds,
+                                  @Value("${bank.interest.workers:4}") int workers) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.rowWriter = rowWriter;
+        this.accrualRepository = accrualRepository;
+        this.workerThreads = workerThreads;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.postingMode = PostingMode.fromProperty(postingMode);
+        this.annualRate = annualRate;
+        this.chunkIds = Math.max(1, chunkIds);
+        this.workers = Math.max(1, workers);
+    }
+
+    @Scheduled(cron = "${bank.interest.cron:0 20 0 * * *}")
+    public void accruePendingDays() {
+        if (postingMode == PostingMode.PARTITIONED) return;
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate latest = accrualRepository.findLatestAccrualDate();
+        // The latest date again: a run that stopped part-way through it finishes it
+        LocalDate from = latest == null ? yesterday : latest;
+        if (from.isBefore(yesterday.minusDays(MAX_CATCH_UP_DAYS - 1))) {
+            from = yesterday.minusDays(MAX_CATCH_UP_DAYS - 1);
+        }
+        for (LocalDate day = from; !day.isAfter(yesterday); day = day.plusDays(1)) {
+            AccrualResult result = accrue(day);
+            log.info("Interest accrual for {}: {}", day, result);
+        }
+    }
+
+    /** Accrue one day's interest; safe to rerun. */
+    public AccrualResult accrue(LocalDate day) {
+        if (postingMode == PostingMode.PARTITIONED) {
+            throw new IllegalStateException("Interest accrual is not available in the partitioned posting mode");
+        }
+        if (!day.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Interest is only accrued for finished days");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An interest accrual run is already in progress");
+        }
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> range = jdbcTemplate.queryForMap(
+                    "SELECT MIN(account_id) AS lo, MAX(account_id) AS hi FROM accounts WHERE account_type = 'SAVINGS'");
+            Totals totals = new Totals();
+            if (range.get("lo") != null) {
+                long lo = ((Number) range.get("lo")).longValue();
+                long hi = ((Number) range.get("hi")).longValue();
+                runChunks(day, lo, hi, totals);
+            }
+            return new AccrualResult(day, totals.accounts.sum(), totals.credited.sum(),
+                    totals.amount(), totals.failedChunks.sum(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void runChunks(LocalDate day, long lo, long hi, Totals totals) {
+        ExecutorService pool = Executors.newFixedThreadPool(workers, workerThreads.factory("interest-accrual"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long from = lo; from <= hi; from += chunkIds) {
+                long chunkStart = from;
+                long chunkEnd = Math.min(from + chunkIds, hi + 1);
+                futures.add(pool.submit(() -> {
+                    try {
+                        ChunkResult result = chunkTransaction.execute(status -> accrueChunk(day, chunkStart, chunkEnd));
+                        totals.add(result);
+                    } catch (RuntimeException e) {
+                        // Rolled back as a whole; the next run picks the chunk up again
+                        totals.failedChunks.increment();
+                        log.error("Interest accrual for {}, accounts [{}, {}) failed", day, chunkStart, chunkEnd, e);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new IllegalStateException("Interest accrual for " + day + " failed", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // ================== CHUNK ==================
+    private ChunkResult accrueChunk(LocalDate day, long fromId, long toId) {
+        List<Accrual> accruals = jdbcTemplate.query(LOCK_CHUNK_SQL, (rs, i) -> new Accrual(
+                rs.getLong(1), rs.getBigDecimal(2), rs.getInt(3) > 1), fromId, toId, Date.valueOf(day));
+        if (accruals.isEmpty()) return new ChunkResult(0, 0, BigDecimal.ZERO);
+
+        // A sharded account's balance includes its credit slots
+        Map<Long, BigDecimal> slotBalances = slotBalances(accruals);
+        Map<Long, BigDecimal> postedSince = postedAfter(accruals, day);
+        LocalDateTime now = LocalDateTime.now();
+        List<Transaction> rows = new ArrayList<>();
+        List<Map.Entry<Long, BigDecimal>> deltas = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Accrual accrual : accruals) {
+            accrual.base = accrual.rowBalance.add(slotBalances.getOrDefault(accrual.accountId, BigDecimal.ZERO))
+                    .subtract(postedSince.getOrDefault(accrual.accountId, BigDecimal.ZERO));
+            accrual.interest = interestOn(accrual.base);
+            if (accrual.interest.signum() > 0) {
+                accrual.row = TransactionBatchWriter.successRow(accrual.accountId,
+                        accrual.sharded ? null : accrual.rowBalance.add(accrual.interest),
+                        "INTEREST", accrual.interest, now);
+                rows.add(accrual.row);
+                deltas.add(new AbstractMap.SimpleImmutableEntry<>(accrual.accountId, accrual.interest));
+                total = total.add(accrual.interest);
+            }
+        }
+
+        rowWriter.insert(rows);
+        rowWriter.applyDeltas(deltas);
+        jdbcTemplate.batchUpdate(INSERT_ACCRUAL_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Accrual accrual = accruals.get(i);
+                ps.setLong(1, accrual.accountId);
+                ps.setDate(2, Date.valueOf(day));
+                ps.setBigDecimal(3, accrual.base);
+                ps.setBigDecimal(4, accrual.interest);
+                ps.setObject(5, accrual.row == null ? null : accrual.row.getTransactionId(), Types.BIGINT);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return accruals.size();
+            }
+        });
+        return new ChunkResult(accruals.size(), rows.size(), total);
+    }
+
+    BigDecimal interestOn(BigDecimal balance) {
+        if (balance.signum() <= 0) return BigDecimal.ZERO.setScale(2);
+        return balance.multiply(annualRate).divide(DAYS_PER_YEAR, 2, RoundingMode.HALF_EVEN);
+    }
+
+    private Map<Long, BigDecimal> slotBalances(List<Accrual> accruals) {
+        List<Long> sharded = accruals.stream().filter(a -> a.sharded).map(a -> a.accountId).toList();
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        if (sharded.isEmpty()) return balances;
+        namedJdbcTemplate.query("SELECT account_id, SUM(balance) FROM account_balance_slots "
+                        + "WHERE account_id IN (:ids) GROUP BY account_id",
+                new MapSqlParameterSource("ids", sharded),
+                rs -> {
+                    balances.put(rs.getLong(1), rs.getBigDecimal(2));
+                });
+        return balances;
+    }
+
+    // Net effect of the postings made after `day` ended, except interest accrued for earlier days
+    // (written late by a catch-up, but part of this day's balance had it run on time)
+    private Map<Long, BigDecimal> postedAfter(List<Accrual> accruals, LocalDate day) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", accruals.stream().map(a -> a.accountId).toList())
+                .addValue("end", Timestamp.valueOf(day.plusDays(1).atStartOfDay()))
+                .addValue("day", Date.valueOf(day));
+        Map<Long, BigDecimal> posted = new HashMap<>();
+        namedJdbcTemplate.query("SELECT t.account_id, SUM(" + BalanceHistoryService.SIGNED_AMOUNT_SQL + ") "
+                        + "FROM transactions t WHERE t.account_id IN (:ids) AND t.timestamp >= :end "
+                        + "AND NOT EXISTS (SELECT 1 FROM interest_accruals ia WHERE ia.account_id = t.account_id "
+                        + "AND ia.accrual_date < :day AND ia.transaction_id = t.transaction_id) "
+                        + "GROUP BY t.account_id",
+                params, rs -> {
+                    posted.merge(rs.getLong(1), rs.getBigDecimal(2), BigDecimal::add);
+                });
+        namedJdbcTemplate.query("SELECT destination_account_id, SUM(amount) FROM transactions "
+                        + "WHERE destination_account_id IN (:ids) AND timestamp >= :end GROUP BY destination_account_id",
+                params, rs -> {
+                    posted.merge(rs.getLong(1), rs.getBigDecimal(2), BigDecimal::add);
+                });
+        return posted;
+    }
+
+    private static final class Accrual {
+        final long accountId;
+        final BigDecimal rowBalance;
+        final boolean sharded;
+        BigDecimal base;
+        BigDecimal interest;
+        Transaction row;
+
+        Accrual(long accountId, BigDecimal rowBalance, boolean sharded) {
+            this.accountId = accountId;
+            this.rowBalance = rowBalance == null ? BigDecimal.ZERO : rowBalance;
+            this.sharded = sharded;
+        }
+    }
+
+    private record ChunkResult(int accounts, int credited, BigDecimal interest) {}
+
+    // Only committed chunks are added
+    private static final class Totals {
+        final LongAdder accounts = new LongAdder();
+        final LongAdder credited = new LongAdder();
+        final LongAdder failedChunks = new LongAdder();
+        private BigDecimal interest = BigDecimal.ZERO;
+
+        void add(ChunkResult chunk) {
+            accounts.add(chunk.accounts());
+            credited.add(chunk.credited());
+            synchronized (this) {
+                interest = interest.add(chunk.interest());
+            }
+        }
+
+        synchronized BigDecimal amount() {
+            return interest;
+        }
+    }
+
+    /** What one day's run did: accounts accrued (credited ones had non-zero interest). */
+    public record AccrualResult(LocalDate day, long accounts, long credited, BigDecimal totalInterest,
+                                long failedChunks, long elapsedMs) {}
+}
@@ -0,0 +1,432 @@
+package org.bank.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.bank.entities.Transaction;
+import org.bank.journal.JournalRecord;
+import org.bank.journal.PostingJournal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-writer partitioned posting engine.
+ *
+ * Account ids are hashed onto a fixed set of partitions. Each partition is one thread that
+ * owns the authoritative in-memory balances of its accounts, so balance checks and updates
+ * need no locks and no DB read after the first touch. Durable writes happen behind the
+ * workers: each partition commits its effects in arrival order, in batches, as
+ * {@code balance = balance + delta} updates (taken in ascending account-id order) plus a
+ * JDBC batch of transaction rows. A caller's future completes once its effect is committed,
+ * or, with the {@link PostingJournal} enabled, once its effect is forced to the journal
+ * (the DB commit then follows behind and is recovered from the journal after a crash).
+ *
+ * Transfers across partitions use a two-step handoff:
+ * <ol>
+ *   <li>the source partition checks and debits the source balance in memory and forwards a
+ *       credit message to the destination partition; nothing is written yet;</li>
+ *   <li>the destination partition credits the destination and emits one effect holding
+ *       both balance legs and the transfer row, which is committed atomically. If the destination account does not
+ *       exist, a refund message restores the debit in the source partition instead.</li>
+ * </ol>
+ * Because every durable effect is atomic and balance deltas commute, the DB never sees one
+ * leg without the other, and a crash only loses postings that were never acknowledged.
+ *
+ * While this engine is active it must be the only writer of account balances, so
+ * {@link AccountServiceImpl} refuses to save existing accounts or delete them in this mode.
+ */
+@Component
+public class PartitionedPostingEngine {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionBatchWriter rowWriter;
+    private final PostingJournal journal;
+    private final TransactionTemplate transactionTemplate;
+    private final int partitionCount;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final Timer batchCommit;
+    private final DistributionSummary batchSize;
+
+    private final AtomicLong transfersInFlight = new AtomicLong();
+    private volatile boolean running = true;
+    private Partition[] partitions;
+
+    @Autowired
+    public PartitionedPostingEngine(JdbcTemplate jdbcTemplate,
+                                    TransactionBatchWriter rowWriter,
+                                    PostingJournal journal,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${bank.posting.partitioned.partitions:4}") int partitionCount,
+                                    @Value("${bank.posting.partitioned.max-batch:256}") int maxBatchSize,
+                                    @Value("${bank.posting.partitioned.flush-ms:5}") long flushMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowWriter = rowWriter;
+        this.journal = journal;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitionCount = partitionCount;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.batchCommit = Timer.builder("bank.posting.batch.commit")
+                .description("One engine batch: balance updates and transaction rows in one DB transaction")
+                .tag("engine", "partitioned")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("bank.posting.batch.size")
+                .description("Postings per committed engine batch")
+                .tag("engine", "partitioned")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Route a posting to the partition that owns its (source) account. The future completes
+     * after the effect is durable (committed, or journaled when the journal is enabled); for
+     * transfers it carries the single transfer row.
+     */
+    public CompletableFuture<Transaction> submit(Posting posting) {
+        if (!running) {
+            throw shutDown();
+        }
+        CompletableFuture<Transaction> result = new CompletableFuture<>();
+        partitionFor(posting.accountId()).send(new Apply(posting, result));
+        return result;
+    }
+
+    /** Transfers debited in a source partition whose credit has not been applied yet. */
+    public long getTransfersInFlight() {
+        return transfersInFlight.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        Partition[] started;
+        synchronized (this) {
+            started = partitions;
+        }
+        if (started == null) return;
+        for (Partition partition : started) {
+            partition.thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    // Journal segments can go once every partition has committed everything they hold
+    private void retireJournal() {
+        long oldestPending = Long.MAX_VALUE;
+        for (Partition partition : partitions()) {
+            oldestPending = Math.min(oldestPending, partition.oldestPendingSequence);
+        }
+        journal.retireThrough(oldestPending == Long.MAX_VALUE ? Long.MAX_VALUE : oldestPending - 1);
+    }
+
+    private Partition partitionFor(Long accountId) {
+        return partitions()[Math.floorMod(Long.hashCode(accountId), partitionCount)];
+    }
+
+    private synchronized Partition[] partitions() {
+        if (partitions == null) {
+            Partition[] created = new Partition[partitionCount];
+            for (int i = 0; i < partitionCount; i++) {
+                created[i] = new Partition(i);
+            }
+            partitions = created;
+            for (Partition partition : created) {
+                partition.thread.start();
+            }
+        }
+        return partitions;
+    }
+
+    private static IllegalStateException shutDown() {
+        return new IllegalStateException("Posting engine is shut down");
+    }
+
+    // ================== MESSAGES ==================
+    private sealed interface Message permits Apply, Credit, Refund {}
+
+    /** A caller's posting, delivered to the partition owning {@code posting.accountId()}. */
+    private record Apply(Posting posting, CompletableFuture<Transaction> result) implements Message {}
+
+    /** Second step of a cross-partition transfer, delivered to the destination's partition. */
+    private record Credit(Posting posting, BigDecimal sourceBalanceAfter,
+                          CompletableFuture<Transaction> result) implements Message {}
+
+    /** Undo of a debit whose credit could not be applied, delivered back to the source's partition. */
+    private record Refund(Long accountId, BigDecimal amount) implements Message {}
+
+    /** Balance legs of one posting plus the single ledger row it writes. */
+    private record Effect(List<JournalRecord.Leg> legs, Transaction row, CompletableFuture<Transaction> result) {}
+
+    // ================== PARTITION WORKER ==================
+    private final class Partition {
+
+        final int index;
+        final Thread thread;
+        final LinkedBlockingQueue<Message> inbox = new LinkedBlockingQueue<>();
+        final Map<Long, BigDecimal> balances = new HashMap<>();
+        List<Effect> pending = new ArrayList<>();
+        final List<Effect> unacknowledged = new ArrayList<>();
+        long firstPendingAt;
+        volatile long oldestPendingSequence = Long.MAX_VALUE;
+        volatile boolean exited;
+
+        Partition(int index) {
+            this.index = index;
+            this.thread = new Thread(this::run, "posting-partition-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void send(Message message) {
+            inbox.add(message);
+            // A credit or refund handed over after this partition exited would otherwise never be seen
+            if (exited) {
+                drain();
+            }
+        }
+
+        void run() {
+            while (running || !inbox.isEmpty() || !pending.isEmpty()) {
+                try {
+                    long wait = pending.isEmpty()
+                            ? TimeUnit.MILLISECONDS.toNanos(100)
+                            : Math.max(0, firstPendingAt + flushIntervalNanos - System.nanoTime());
+                    Message message = inbox.poll(wait, TimeUnit.NANOSECONDS);
+                    if (message != null) {
+                        handle(message);
+                    }
+                    if (!unacknowledged.isEmpty()
+                            && (inbox.isEmpty() || unacknowledged.size() >= maxBatchSize)) {
+                        acknowledgeJournaled();
+                    }
+                    if (!pending.isEmpty()
+                            && (pending.size() >= maxBatchSize
+                                || System.nanoTime() - firstPendingAt >= flushIntervalNanos
+                                || !running)) {
+                        flush();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            exited = true;
+            drain();
+        }
+
+        // Nothing of a leftover message is durable yet: a transfer's debit only lived in memory,
+        // so failing its future (and dropping the in-flight count) is the whole undo
+        void drain() {
+            Message leftover;
+            while ((leftover = inbox.poll()) != null) {
+                switch (leftover) {
+                    case Apply apply -> apply.result().completeExceptionally(shutDown());
+                    case Credit credit -> {
+                        transfersInFlight.decrementAndGet();
+                        credit.result().completeExceptionally(shutDown());
+                    }
+                    case Refund refund -> transfersInFlight.decrementAndGet();
+                }
+            }
+        }
+
+        void handle(Message message) {
+            switch (message) {
+                case Apply apply -> {
+                    try {
+                        applyPosting(apply);
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        apply.result().completeExceptionally(e);
+                    }
+                }
+                case Credit credit -> applyCredit(credit);
+                case Refund refund -> {
+                    balances.merge(refund.accountId(), refund.amount(), BigDecimal::add);
+                    transfersInFlight.decrementAndGet();
+                }
+            }
+        }
+
+        void applyPosting(Apply apply) {
+            Posting posting = apply.posting();
+            Long accountId = posting.accountId();
+            BigDecimal amount = posting.amount();
+            LocalDateTime now = LocalDateTime.now();
+
+            switch (posting.kind()) {
+                case DEPOSIT -> {
+                    BigDecimal balance = balanceOf(accountId, "Account not found: ").add(amount);
+                    balances.put(accountId, balance);
+                    emit(apply.result(), TransactionBatchWriter.successRow(accountId, balance, "DEPOSIT", amount, now),
+                            new JournalRecord.Leg(accountId, "DEPOSIT", amount));
+                }
+                case WITHDRAW -> {
+                    BigDecimal balance = balanceOf(accountId, "Account not found: ");
+                    if (balance.compareTo(amount) < 0) {
+                        throw new InsufficientBalanceException("Insufficient balance for withdrawal");
+                    }
+                    balance = balance.subtract(amount);
+                    balances.put(accountId, balance);
+                    emit(apply.result(), TransactionBatchWriter.successRow(accountId, balance, "WITHDRAW", amount, now),
+                            new JournalRecord.Leg(accountId, "WITHDRAW", amount));
+                }
+                case TRANSFER -> {
+                    BigDecimal balance = balanceOf(accountId, "Source account not found: ");
+                    if (balance.compareTo(amount) < 0) {
+                        throw new InsufficientBalanceException("Insufficient balance for transfer");
+                    }
+                    balance = balance.subtract(amount);
+                    balances.put(accountId, balance);
+                    transfersInFlight.incrementAndGet();
+
+                    Credit credit = new Credit(posting, balance, apply.result());
+                    Partition target = partitionFor(posting.targetAccountId());
+                    if (target == this) {
+                        applyCredit(credit);
+                    } else {
+                        target.send(credit);
+                    }
+                }
+            }
+        }
+
+        void applyCredit(Credit credit) {
+            Posting posting = credit.posting();
+            Long targetId = posting.targetAccountId();
+            BigDecimal amount = posting.amount();
+
+            BigDecimal balance;
+            try {
+                balance = balanceOf(targetId, "Destination account not found: ");
+            } catch (IllegalArgumentException e) {
+                Refund refund = new Refund(posting.accountId(), amount);
+                Partition source = partitionFor(posting.accountId());
+                if (source == this) {
+                    handle(refund);
+                } else {
+                    source.send(refund);
+                }
+                credit.result().completeExceptionally(e);
+                return;
+            }
+
+            balance = balance.add(amount);
+            balances.put(targetId, balance);
+            transfersInFlight.decrementAndGet();
+
+            LocalDateTime now = LocalDateTime.now();
+            emit(credit.result(),
+                    TransactionBatchWriter.transferRow(posting.accountId(), credit.sourceBalanceAfter(),
+                            targetId, balance, amount, now),
+                    new JournalRecord.Leg(posting.accountId(), "TRANSFER_SENT", amount),
+                    new JournalRecord.Leg(targetId, "TRANSFER_RECEIVED", amount));
+        }
+
+        BigDecimal balanceOf(Long accountId, String notFoundMessage) {
+            BigDecimal balance = balances.get(accountId);
+            if (balance != null) return balance;
+
+            List<BigDecimal> loaded = jdbcTemplate.queryForList(
+                    "SELECT balance FROM accounts WHERE account_id = ?", BigDecimal.class, accountId);
+            if (loaded.isEmpty()) {
+                throw new IllegalArgumentException(notFoundMessage + accountId);
+            }
+            balance = loaded.get(0) == null ? BigDecimal.ZERO : loaded.get(0);
+            balances.put(accountId, balance);
+            return balance;
+        }
+
+        void emit(CompletableFuture<Transaction> result, Transaction row, JournalRecord.Leg... legs) {
+            Effect effect = new Effect(List.of(legs), row, result);
+            boolean first = pending.isEmpty();
+            long sequence = Long.MAX_VALUE;
+            if (journal.isEnabled()) {
+                if (first) {
+                    oldestPendingSequence = 0; // hold off segment retirement until the sequence is known
+                }
+                sequence = journal.append(row.getTimestamp(), effect.legs());
+                row.setJournalSequence(sequence);
+                unacknowledged.add(effect);
+            }
+            if (first) {
+                firstPendingAt = System.nanoTime();
+                oldestPendingSequence = sequence;
+            }
+            pending.add(effect);
+        }
+
+        // One force covers every record appended since the last one (group fsync)
+        void acknowledgeJournaled() {
+            journal.force();
+            for (Effect effect : unacknowledged) {
+                effect.result().complete(effect.row());
+            }
+            unacknowledged.clear();
+        }
+
+        // ================== WRITE-BEHIND ==================
+        void flush() throws InterruptedException {
+            if (!unacknowledged.isEmpty()) {
+                acknowledgeJournaled();
+            }
+            List<Effect> batch = pending;
+            pending = new ArrayList<>();
+
+            // Ascending account order keeps concurrent partition flushes from deadlocking on row locks
+            TreeMap<Long, BigDecimal> deltas = new TreeMap<>();
+            List<Transaction> rows = new ArrayList<>(batch.size());
+            for (Effect effect : batch) {
+                for (JournalRecord.Leg leg : effect.legs()) {
+                    deltas.merge(leg.accountId(), leg.delta(), BigDecimal::add);
+                }
+                rows.add(effect.row());
+            }
+            List<Map.Entry<Long, BigDecimal>> updates = new ArrayList<>(deltas.entrySet());
+
+            // In-memory state is authoritative: keep retrying until the batch is durable
+            long backoffMillis = 50;
+            while (true) {
+                try {
+                    batchCommit.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                        rowWriter.applyDeltas(updates);
+                        rowWriter.insert(rows);
+                    }));
+                    batchSize.record(batch.size());
+                    break;
+                } catch (RuntimeException e) {
+                    if (!running) {
+                        batch.forEach(effect -> effect.result().completeExceptionally(e));
+                        return;
+                    }
+                    Thread.sleep(backoffMillis);
+                    backoffMillis = Math.min(backoffMillis * 2, 5_000);
+                }
+            }
+
+            for (Effect effect : batch) {
+                effect.result().complete(effect.row());
+            }
+            oldestPendingSequence = Long.MAX_VALUE;
+            if (journal.isEnabled()) {
+                retireJournal();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.bank.service;
+
+import java.math.BigDecimal;
+
+/**
+ * A single balance movement requested by a caller (deposit, withdrawal or transfer).
+ * For deposits and withdrawals {@code targetAccountId} is null.
+ */
+public record Posting(Kind kind, Long accountId, Long targetAccountId, BigDecimal amount) {
+
+    public enum Kind { DEPOSIT, WITHDRAW, TRANSFER }
+
+    public static Posting deposit(Long accountId, BigDecimal amount) {
+        return new Posting(Kind.DEPOSIT, accountId, null, amount);
+    }
+
+    public static Posting withdraw(Long accountId, BigDecimal amount) {
+        return new Posting(Kind.WITHDRAW, accountId, null, amount);
+    }
+
+    public static Posting transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        return new Posting(Kind.TRANSFER, fromAccountId, toAccountId, amount);
+    }
+}
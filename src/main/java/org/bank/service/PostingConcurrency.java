@@ -0,0 +1,24 @@
+package org.bank.service;
+
+/**
+ * How the direct posting path protects account balances against concurrent updates.
+ * Selected with {@code bank.posting.concurrency}.
+ */
+public enum PostingConcurrency {
+
+    /** Rely on {@code Account.@Version}; on conflict back off and retry up to a fixed limit. */
+    OPTIMISTIC,
+
+    /**
+     * Take a striped in-JVM lock per account, then {@code SELECT ... FOR UPDATE} the rows in
+     * ascending account-id order. Conflicting postings queue up instead of failing.
+     */
+    ORDERED_LOCKING;
+
+    public static PostingConcurrency fromProperty(String value) {
+        if (value == null || value.isBlank()) {
+            return OPTIMISTIC;
+        }
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,135 @@
+package org.bank.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for comparing posting concurrency strategies: optimistic-lock conflicts and
+ * retries on one side, lock acquisitions and time spent waiting for them on the other.
+ * Per posting kind it also tracks end-to-end latency, how each posting ended and how many
+ * attempts direct postings needed; all of it is registered with Micrometer.
+ */
+@Component
+public class PostingContentionMetrics {
+
+    /** How a posting ended, as seen by the caller. */
+    public enum Outcome {
+        SUCCESS, INSUFFICIENT_BALANCE, REJECTED, RETRIES_EXHAUSTED, ERROR;
+
+        public static Outcome of(RuntimeException e) {
+            if (e instanceof InsufficientBalanceException) return INSUFFICIENT_BALANCE;
+            if (e instanceof IllegalArgumentException) return REJECTED;
+            return ERROR;
+        }
+    }
+
+    private final Counter retries;
+    private final Counter retriesExhausted;
+    private final Timer lockWait;
+    private final AtomicLong maxLockWaitNanos = new AtomicLong();
+    private final Map<Posting.Kind, KindMetrics> byKind = new EnumMap<>(Posting.Kind.class);
+
+    @Autowired
+    public PostingContentionMetrics(MeterRegistry registry) {
+        this.retries = Counter.builder("bank.posting.retries")
+                .description("Direct posting retries after a conflict")
+                .register(registry);
+        this.retriesExhausted = Counter.builder("bank.posting.retries.exhausted")
+                .description("Direct postings that gave up after the last retry")
+                .register(registry);
+        this.lockWait = Timer.builder("bank.posting.lock.wait")
+                .description("Time spent waiting for account lock stripes (ordered-locking)")
+                .publishPercentileHistogram()
+                .register(registry);
+        for (Posting.Kind kind : Posting.Kind.values()) {
+            byKind.put(kind, new KindMetrics(registry, kind.name().toLowerCase()));
+        }
+    }
+
+    public void recordConflict(Posting.Kind kind) {
+        byKind.get(kind).conflicts.increment();
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void recordRetriesExhausted() {
+        retriesExhausted.increment();
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWait.record(nanos, TimeUnit.NANOSECONDS);
+        maxLockWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /** {@code attempts} is 0 for postings handed to an engine, which retries on its own terms. */
+    public void recordPosting(Posting.Kind kind, Outcome outcome, int attempts, long nanos) {
+        KindMetrics metrics = byKind.get(kind);
+        metrics.latency.record(nanos, TimeUnit.NANOSECONDS);
+        metrics.outcomes.get(outcome).increment();
+        if (attempts > 0) {
+            metrics.attempts.record(attempts);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        long acquisitions = lockWait.count();
+        long waitNanos = (long) lockWait.totalTime(TimeUnit.NANOSECONDS);
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("optimisticConflicts", byKind.values().stream()
+                .mapToLong(m -> (long) m.conflicts.count()).sum());
+        snapshot.put("retries", (long) retries.count());
+        snapshot.put("retriesExhausted", (long) retriesExhausted.count());
+        snapshot.put("insufficientBalance", byKind.values().stream()
+                .mapToLong(m -> (long) m.outcomes.get(Outcome.INSUFFICIENT_BALANCE).count()).sum());
+        snapshot.put("lockAcquisitions", acquisitions);
+        snapshot.put("lockWaitTotalMs", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        snapshot.put("lockWaitAvgMicros", acquisitions == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos / acquisitions));
+        snapshot.put("lockWaitMaxMicros", TimeUnit.NANOSECONDS.toMicros(maxLockWaitNanos.get()));
+        return snapshot;
+    }
+
+    private static final class KindMetrics {
+        final Timer latency;
+        final DistributionSummary attempts;
+        final Counter conflicts;
+        final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+
+        KindMetrics(MeterRegistry registry, String kind) {
+            latency = Timer.builder("bank.posting.duration")
+                    .description("Posting latency as seen by the caller, retries and queueing included")
+                    .tag("kind", kind)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            // Direct postings give up after BankTransactionService.MAX_RETRIES attempts
+            attempts = DistributionSummary.builder("bank.posting.attempts")
+                    .description("Attempts needed per direct posting")
+                    .tag("kind", kind)
+                    .serviceLevelObjectives(1, 2, 3)
+                    .register(registry);
+            conflicts = Counter.builder("bank.posting.optimistic.conflicts")
+                    .description("Optimistic-lock conflicts hit by direct postings")
+                    .tag("kind", kind)
+                    .register(registry);
+            for (Outcome outcome : Outcome.values()) {
+                outcomes.put(outcome, Counter.builder("bank.postings")
+                        .description("Postings by kind and outcome")
+                        .tag("kind", kind)
+                        .tag("outcome", outcome.name().toLowerCase())
+                        .register(registry));
+            }
+        }
+    }
+}
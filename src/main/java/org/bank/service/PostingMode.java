@@ -0,0 +1,24 @@
+package org.bank.service;
+
+/**
+ * How {@link BankTransactionService} executes deposits, withdrawals and transfers.
+ * Selected with {@code bank.posting.mode} (e.g. {@code direct}, {@code group-commit}, {@code partitioned}).
+ */
+public enum PostingMode {
+
+    /** One DB transaction per posting, committed on the caller's thread. */
+    DIRECT,
+
+    /** Postings are queued and committed in micro-batches by {@link GroupCommitPostingEngine}. */
+    GROUP_COMMIT,
+
+    /** Balances are owned in memory by single-threaded partitions, see {@link PartitionedPostingEngine}. */
+    PARTITIONED;
+
+    public static PostingMode fromProperty(String value) {
+        if (value == null || value.isBlank()) {
+            return DIRECT;
+        }
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
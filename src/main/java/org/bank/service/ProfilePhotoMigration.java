@@ -0,0 +1,119 @@
+package org.bank.service;
+
+import org.bank.config.SecondLevelCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * One-time move of profile photos from the legacy {@code customers.profile_photo} LONGBLOB
+ * into the {@link ProfilePhotoStore}.
+ *
+ * Customers are visited in id order, one photo at a time: the blob is streamed into the store,
+ * its display variants are rendered, then the row gets its hash and the blob is cleared. A crash in between leaves at worst an
+ * unreferenced file, and rows that already have a hash are skipped, so it can be rerun.
+ * The emptied column can be dropped by hand once this has run.
+ * Enable with {@code bank.photos.migrate-blobs=true}.
+ */
+@Component
+@Order(3)
+public class ProfilePhotoMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilePhotoMigration.class);
+
+    private static final int CHUNK = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProfilePhotoStore photoStore;
+    private final ProfilePhotoProcessor photoProcessor;
+    private final SecondLevelCache secondLevelCache;
+    private final boolean enabled;
+
+    @Autowired
+    public ProfilePhotoMigration(JdbcTemplate jdbcTemplate,
+                                 ProfilePhotoStore photoStore,
+                                 ProfilePhotoProcessor photoProcessor,
+                                 SecondLevelCache secondLevelCache,
+                                 @Value("${bank.photos.migrate-blobs:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.photoStore = photoStore;
+        this.photoProcessor = photoProcessor;
+        this.secondLevelCache = secondLevelCache;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            long moved = migrate();
+            log.info("Profile photo migration: moved {} photos to the photo store", moved);
+        }
+    }
+
+    /** Returns the number of photos moved. */
+    public long migrate() {
+        if (!legacyColumnExists()) return 0;
+
+        long moved = 0;
+        long cursor = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT customer_id FROM customers WHERE customer_id > ? "
+                            + "AND profile_photo IS NOT NULL AND profile_photo_hash IS NULL "
+                            + "ORDER BY customer_id LIMIT " + CHUNK,
+                    Long.class, cursor);
+            if (ids.isEmpty()) break;
+
+            for (Long id : ids) {
+                ProfilePhotoStore.StoredPhoto photo = jdbcTemplate.query(
+                        "SELECT profile_photo FROM customers WHERE customer_id = ?",
+                        rs -> rs.next() ? store(id, rs.getBinaryStream(1)) : null,
+                        id);
+                if (photo == null) continue;
+
+                moved += jdbcTemplate.update("UPDATE customers SET profile_photo_hash = ?, profile_photo_type = ?, "
+                                + "profile_photo = NULL WHERE customer_id = ? AND profile_photo_hash IS NULL",
+                        photo.hash(), photo.contentType(), id);
+            }
+            cursor = ids.get(ids.size() - 1);
+        }
+        if (moved > 0) secondLevelCache.evictCustomers();
+        return moved;
+    }
+
+    private ProfilePhotoStore.StoredPhoto store(long customerId, InputStream blob) {
+        if (blob == null) return null;
+        try (InputStream in = blob) {
+            ProfilePhotoStore.StoredPhoto photo = photoStore.put(in);
+            // Undecodable legacy photos keep being served as they are
+            photoProcessor.writeVariants(photo.hash());
+            return photo;
+        } catch (IllegalArgumentException e) {
+            // Over bank.photos.max-bytes: leave the blob where it is
+            log.warn("Profile photo migration: skipped customer {}: {}", customerId, e.getMessage());
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Databases created after the blob column was unmapped never had it
+    private boolean legacyColumnExists() {
+        Integer columns = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() "
+                        + "AND table_name = 'customers' AND column_name = 'profile_photo'",
+                Integer.class);
+        return columns != null && columns > 0;
+    }
+}
@@ -0,0 +1,217 @@
+package org.bank.service;
+
+import jakarta.annotation.PreDestroy;
+import org.bank.repository.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background processing of profile photo uploads.
+ *
+ * The request thread only spools the upload into the store's temp area and calls
+ * {@link #submit}; a bounded pool then hashes it into the {@link ProfilePhotoStore}, renders
+ * a square {@value #THUMB} ({@value #THUMB_SIZE}px, for avatars) and a {@value #DISPLAY}
+ * variant (longest side {@value #DISPLAY_SIZE}px) as JPEG, and only then points the customer
+ * at the new photo. Until that happens the previous photo keeps being served.
+ */
+@Component
+public class ProfilePhotoProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilePhotoProcessor.class);
+
+    public static final String THUMB = "thumb";
+    public static final String DISPLAY = "display";
+    static final String[] VARIANTS = {THUMB, DISPLAY};
+
+    private static final int THUMB_SIZE = 128;
+    private static final int DISPLAY_SIZE = 640;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ProfilePhotoStore photoStore;
+    private final CustomerRepository customerRepository;
+    private final CustomerContextService customerContextService;
+    private final ThreadPoolExecutor workers;
+
+    @Autowired
+    public ProfilePhotoProcessor(ProfilePhotoStore photoStore,
+                                 CustomerRepository customerRepository,
+                                 CustomerContextService customerContextService,
+                                 @Value("${bank.photos.workers:2}") int workers,
+                                 @Value("${bank.photos.queue-capacity:64}") int queueCapacity) {
+        this.photoStore = photoStore;
+        this.customerRepository = customerRepository;
+        this.customerContextService = customerContextService;
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "profile-photo-worker");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Queue a spooled upload for {@code customerId}. Returns false, and deletes the spool file,
+     * when the queue is full.
+     */
+    public boolean submit(Long customerId, Path spool) {
+        try {
+            workers.execute(() -> process(customerId, spool));
+            return true;
+        } catch (RejectedExecutionException e) {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException ignored) {
+                // left for the next cleanup of the temp area
+            }
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    void process(Long customerId, Path spool) {
+        ProfilePhotoStore.StoredPhoto photo;
+        try {
+            photo = photoStore.adopt(spool);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Profile photo for customer {} rejected", customerId, e);
+            return;
+        }
+
+        try {
+            if (!writeVariants(photo.hash())) {
+                throw new IOException("not a readable image");
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Profile photo for customer {} rejected", customerId, e);
+            release(photo.hash());
+            return;
+        }
+
+        String previous = customerRepository.findProfilePhotoHash(customerId);
+        customerRepository.updateProfilePhoto(customerId, photo.hash(), photo.contentType());
+        customerContextService.evict(customerId);
+        if (previous != null && !previous.equals(photo.hash())) {
+            release(previous);
+        }
+    }
+
+    /** Render the variants of a stored photo; returns false when it cannot be decoded. */
+    public boolean writeVariants(String hash) throws IOException {
+        if (Files.exists(photoStore.variantPath(hash, THUMB)) && Files.exists(photoStore.variantPath(hash, DISPLAY))) {
+            return true; // same content uploaded before
+        }
+
+        BufferedImage source = decode(photoStore.path(hash), DISPLAY_SIZE);
+        if (source == null) return false;
+
+        BufferedImage thumb = squareCrop(source, THUMB_SIZE);
+        BufferedImage display = fit(source, DISPLAY_SIZE);
+        photoStore.putVariant(hash, THUMB, out -> writeJpeg(thumb, out));
+        photoStore.putVariant(hash, DISPLAY, out -> writeJpeg(display, out));
+        return true;
+    }
+
+    // Files are shared by content, so only drop one nobody points at any more
+    private void release(String hash) {
+        if (customerRepository.countByProfilePhotoHash(hash) > 0) return;
+        try {
+            photoStore.delete(hash, VARIANTS);
+        } catch (IOException e) {
+            log.warn("Could not delete profile photo {}", hash, e);
+        }
+    }
+
+    // ================== IMAGE HELPERS ==================
+    // Subsample while decoding so a 12 MP photo never needs a full-size raster
+    private static BufferedImage decode(Path file, int largestVariant) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int shortSide = Math.min(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, shortSide / (2 * largestVariant));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage squareCrop(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+        return scale(source.getSubimage(x, y, side, side), size, size);
+    }
+
+    private static BufferedImage fit(BufferedImage source, int maxSide) {
+        double ratio = Math.min(1.0, (double) maxSide / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        return scale(source, width, height);
+    }
+
+    // Always RGB on white: JPEG has no alpha, and this also normalizes CMYK/indexed sources
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static void writeJpeg(BufferedImage image, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
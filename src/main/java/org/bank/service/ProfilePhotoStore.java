@@ -0,0 +1,201 @@
+package org.bank.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed file store for profile photos. A photo lives at
+ * {@code <bank.photos.dir>/ab/cd/<sha-256>}, so identical uploads share one file and a hash
+ * doubles as a strong ETag. Resized variants sit next to it as {@code <sha-256>-<variant>}.
+ * Writes go to a temp file first and are moved into place, so a visible file is always complete.
+ */
+@Component
+public class ProfilePhotoStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String FALLBACK_TYPE = "image/jpeg";
+
+    private final Path root;
+    private final long maxBytes;
+
+    @Autowired
+    public ProfilePhotoStore(@Value("${bank.photos.dir:photos}") String root,
+                             @Value("${bank.photos.max-bytes:20971520}") long maxBytes) {
+        this.root = Paths.get(root);
+        this.maxBytes = maxBytes;
+    }
+
+    /** Stream {@code in} into the store; throws IllegalArgumentException past {@code bank.photos.max-bytes}. */
+    public StoredPhoto put(InputStream in) throws IOException {
+        Path spool = newSpoolFile();
+        try (OutputStream out = Files.newOutputStream(spool)) {
+            byte[] buf = new byte[8192];
+            long size = 0;
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                size += n;
+                if (size > maxBytes) {
+                    throw new IllegalArgumentException("Photo is larger than " + maxBytes + " bytes");
+                }
+                out.write(buf, 0, n);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        return adopt(spool);
+    }
+
+    /**
+     * Move an already spooled file into the store; the file is hashed in place and renamed,
+     * not copied. Throws IllegalArgumentException past {@code bank.photos.max-bytes}.
+     */
+    public StoredPhoto adopt(Path file) throws IOException {
+        try {
+            long size = Files.size(file);
+            if (size > maxBytes) {
+                throw new IllegalArgumentException("Photo is larger than " + maxBytes + " bytes");
+            }
+
+            MessageDigest sha256 = sha256();
+            String contentType;
+            try (BufferedInputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                contentType = sniff(in);
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    sha256.update(buf, 0, n);
+                }
+            }
+
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            Path target = path(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                moveIntoPlace(file, target);
+            }
+            return new StoredPhoto(hash, contentType, size);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** Temp file inside the store, on the same file system so {@link #adopt} can rename it. */
+    public Path newSpoolFile() throws IOException {
+        Path tmpDir = root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        return Files.createTempFile(tmpDir, "spool-", ".part").toAbsolutePath();
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public Path path(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Not a photo hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    public Path variantPath(String hash, String variant) {
+        Path original = path(hash);
+        return original.resolveSibling(hash + "-" + variant);
+    }
+
+    public boolean exists(String hash) {
+        return hash != null && HASH.matcher(hash).matches() && Files.isRegularFile(path(hash));
+    }
+
+    /** Write a derived variant of {@code hash}; {@code writer} fills a temp file that is then moved into place. */
+    public void putVariant(String hash, String variant, FileWriter writer) throws IOException {
+        Path target = variantPath(hash, variant);
+        Path tmp = newSpoolFile();
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                writer.write(out);
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Deletes the photo and its variants. Callers must make sure no customer still references {@code hash}. */
+    public void delete(String hash, String... variants) throws IOException {
+        if (hash != null && HASH.matcher(hash).matches()) {
+            for (String variant : variants) {
+                Files.deleteIfExists(variantPath(hash, variant));
+            }
+            Files.deleteIfExists(path(hash));
+        }
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(tmp, target);
+            } catch (FileAlreadyExistsException ignored) {
+                // Same content stored concurrently
+            }
+        } catch (FileAlreadyExistsException ignored) {
+            // Same content stored concurrently
+        }
+    }
+
+    // Content type from magic bytes; browsers get nosniff, so this is what they will render
+    private static String sniff(BufferedInputStream in) throws IOException {
+        in.mark(12);
+        byte[] head = in.readNBytes(12);
+        in.reset();
+
+        if (head.length >= 3 && (head[0] & 0xff) == 0xFF && (head[1] & 0xff) == 0xD8 && (head[2] & 0xff) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (head.length >= 8 && (head[0] & 0xff) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return "image/png";
+        }
+        if (head.length >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') {
+            return "image/gif";
+        }
+        if (head.length >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        return FALLBACK_TYPE;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record StoredPhoto(String hash, String contentType, long size) {}
+
+    @FunctionalInterface
+    public interface FileWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,210 @@
+package org.bank.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One-time fill of {@code balance_after} / {@code destination_balance_after} on rows written
+ * before running balances existed, followed by daily snapshots for the whole history.
+ *
+ * Accounts are processed in parallel chunks. Per account, the opening balance is derived once
+ * under a row lock (current balance minus the signed sum of its rows), then its rows are walked
+ * in (timestamp, id) order in keyset chunks and only unstamped rows are updated. Rows committed
+ * after that point are already stamped by the posting path, so the walk stops at the highest id
+ * seen under the lock. Sharded (hot) accounts are skipped: their postings deliberately carry no
+ * running balance. Safe to rerun; runs after the transfer pair migration.
+ * Enable with {@code bank.ledger.backfill-balances=true}.
+ */
+@Component
+@Order(2)
+public class RunningBalanceBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RunningBalanceBackfill.class);
+
+    private static final int ACCOUNTS_PER_TASK = 100;
+    private static final int CHUNK = 1000;
+
+    private static final String ROWS_CHUNK_SQL =
+            "SELECT * FROM ("
+                    + "(SELECT transaction_id, timestamp, transaction_type, amount, balance_after AS stamped, 0 AS receiving "
+                    + "FROM transactions WHERE account_id = ? AND transaction_id <= ? "
+                    + "AND (timestamp > ? OR (timestamp = ? AND transaction_id > ?)) "
+                    + "ORDER BY timestamp, transaction_id LIMIT " + CHUNK + ") "
+                    + "UNION ALL "
+                    + "(SELECT transaction_id, timestamp, transaction_type, amount, destination_balance_after, 1 "
+                    + "FROM transactions WHERE destination_account_id = ? AND transaction_id <= ? "
+                    + "AND (timestamp > ? OR (timestamp = ? AND transaction_id > ?)) "
+                    + "ORDER BY timestamp, transaction_id LIMIT " + CHUNK + ")"
+                    + ") legs ORDER BY timestamp, transaction_id LIMIT " + CHUNK;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceSnapshotJob snapshotJob;
+    private final WorkerThreads workerThreads;
+    private final boolean enabled;
+    private final int threads;
+
+    @Autowired
+    public RunningBalanceBackfill(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  BalanceSnapshotJob snapshotJob,
+                                  WorkerThreads workerThreads,
+                                  @Value("${bank.ledger.backfill-balances:false}") boolean enabled,
+                                  @Value("${bank.ledger.backfill-threads:4}") int threads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotJob = snapshotJob;
+        this.workerThreads = workerThreads;
+        this.enabled = enabled;
+        this.threads = threads;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (enabled) {
+            long start = System.nanoTime();
+            long stamped = backfill();
+            long days = snapshotHistory();
+            log.info("Running balance backfill: stamped {} rows, snapshotted {} days in {} ms",
+                    stamped, days, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /** Returns the number of rows stamped. */
+    public long backfill() throws Exception {
+        List<Long> accountIds = jdbcTemplate.queryForList(
+                "SELECT u.account_id FROM (SELECT account_id FROM transactions WHERE balance_after IS NULL "
+                        + "UNION SELECT destination_account_id FROM transactions "
+                        + "WHERE destination_account_id IS NOT NULL AND destination_balance_after IS NULL) u "
+                        + "JOIN accounts a ON a.account_id = u.account_id WHERE a.balance_slots <= 1",
+                Long.class);
+
+        LongAdder stamped = new LongAdder();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < accountIds.size(); i += ACCOUNTS_PER_TASK) {
+            List<Long> chunk = accountIds.subList(i, Math.min(i + ACCOUNTS_PER_TASK, accountIds.size()));
+            tasks.add(() -> chunk.forEach(id -> stamped.add(backfillAccount(id))));
+        }
+        runAll(tasks);
+        return stamped.sum();
+    }
+
+    /** Snapshot every finished day from the first posting to yesterday; returns the number of days. */
+    public long snapshotHistory() throws Exception {
+        Timestamp first = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM transactions", Timestamp.class);
+        if (first == null) return 0;
+
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        List<Runnable> tasks = new ArrayList<>();
+        for (LocalDate day = first.toLocalDateTime().toLocalDate(); !day.isAfter(yesterday); day = day.plusDays(1)) {
+            LocalDate d = day;
+            tasks.add(() -> snapshotJob.snapshotDay(d));
+        }
+        runAll(tasks);
+        return tasks.size();
+    }
+
+    long backfillAccount(long accountId) {
+        Opening opening = transactionTemplate.execute(status -> openingOf(accountId));
+        if (opening == null || opening.maxTransactionId() == 0) return 0;
+
+        BigDecimal running = opening.balance();
+        Timestamp cursorTs = Timestamp.valueOf(LocalDateTime.of(1970, 1, 1, 0, 0));
+        long cursorId = -1;
+        long stamped = 0;
+
+        while (true) {
+            List<Leg> legs = jdbcTemplate.query(ROWS_CHUNK_SQL, (rs, i) -> new Leg(
+                            rs.getLong(1), rs.getTimestamp(2), rs.getString(3), rs.getBigDecimal(4),
+                            rs.getBigDecimal(5), rs.getInt(6) == 1),
+                    accountId, opening.maxTransactionId(), cursorTs, cursorTs, cursorId,
+                    accountId, opening.maxTransactionId(), cursorTs, cursorTs, cursorId);
+            if (legs.isEmpty()) break;
+
+            List<Object[]> sentUpdates = new ArrayList<>();
+            List<Object[]> receivedUpdates = new ArrayList<>();
+            for (Leg leg : legs) {
+                running = running.add(BalanceHistoryService.signedAmount(leg.type(), leg.amount(), leg.receiving()));
+                if (leg.stamped() == null) {
+                    (leg.receiving() ? receivedUpdates : sentUpdates).add(new Object[]{running, leg.id()});
+                }
+            }
+            if (!sentUpdates.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE transactions SET balance_after = ? "
+                        + "WHERE transaction_id = ? AND balance_after IS NULL", sentUpdates);
+            }
+            if (!receivedUpdates.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE transactions SET destination_balance_after = ? "
+                        + "WHERE transaction_id = ? AND destination_balance_after IS NULL", receivedUpdates);
+            }
+            stamped += sentUpdates.size() + receivedUpdates.size();
+
+            Leg last = legs.get(legs.size() - 1);
+            cursorTs = last.timestamp();
+            cursorId = last.id();
+        }
+        return stamped;
+    }
+
+    // Under the account's row lock no posting can commit for it, so balance and rows agree
+    private Opening openingOf(long accountId) {
+        List<BigDecimal> balance = jdbcTemplate.queryForList(
+                "SELECT balance FROM accounts WHERE account_id = ? FOR UPDATE", BigDecimal.class, accountId);
+        if (balance.isEmpty()) return null;
+
+        BigDecimal sent = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(" + BalanceHistoryService.SIGNED_AMOUNT_SQL + "), 0) FROM transactions "
+                        + "WHERE account_id = ?", BigDecimal.class, accountId);
+        BigDecimal received = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE destination_account_id = ?",
+                BigDecimal.class, accountId);
+        Long maxId = jdbcTemplate.queryForObject(
+                "SELECT GREATEST(COALESCE((SELECT MAX(transaction_id) FROM transactions WHERE account_id = ?), 0), "
+                        + "COALESCE((SELECT MAX(transaction_id) FROM transactions WHERE destination_account_id = ?), 0))",
+                Long.class, accountId, accountId);
+
+        return new Opening(balance.get(0).subtract(sent).subtract(received), maxId == null ? 0 : maxId);
+    }
+
+    private void runAll(List<Runnable> tasks) throws Exception {
+        if (tasks.isEmpty()) return;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, tasks.size()),
+                workerThreads.factory("balance-backfill"));
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            for (Runnable task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private record Opening(BigDecimal balance, long maxTransactionId) {}
+
+    private record Leg(long id, Timestamp timestamp, String type, BigDecimal amount,
+                       BigDecimal stamped, boolean receiving) {}
+}
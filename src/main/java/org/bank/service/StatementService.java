@@ -0,0 +1,413 @@
+package org.bank.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Monthly account statements as files under {@code bank.statements.dir}/{@code yyyy-MM}: a CSV
+ * and a printable plain-text statement per account, in subdirectories of 1000 accounts.
+ *
+ * Accounts are split into id-ordered chunks that run on {@code bank.statements.workers}
+ * threads. Per account the opening balance is a point-in-time lookup and the month is one
+ * range query over both sides of the account's rows, streamed into both files; the running
+ * balance is recomputed from the opening balance, so sharded accounts are covered too.
+ *
+ * Progress is checkpointed on disk: files are written under a temporary name and moved into
+ * place, and each finished chunk's id range is appended to the month's {@code checkpoint} file.
+ * A rerun (or the restart after a crash, which resumes unfinished months on its own) skips
+ * chunks whose range is listed and accounts whose files exist. A {@code COMPLETED} marker closes a month.
+ */
+@Service
+@Order(4)
+public class StatementService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementService.class);
+
+    private static final int ACCOUNTS_PER_CHUNK = 100;
+    private static final int ACCOUNTS_PER_DIRECTORY = 1000;
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String COMPLETED = "COMPLETED";
+
+    private static final String MONTH_SQL =
+            "SELECT * FROM ("
+                    + "(SELECT transaction_id, timestamp, transaction_type, amount, 0 AS receiving, "
+                    + "destination_account_id AS counterparty FROM transactions "
+                    + "WHERE account_id = ? AND timestamp >= ? AND timestamp < ?) "
+                    + "UNION ALL "
+                    + "(SELECT transaction_id, timestamp, transaction_type, amount, 1, account_id FROM transactions "
+                    + "WHERE destination_account_id = ? AND timestamp >= ? AND timestamp < ?)"
+                    + ") legs ORDER BY timestamp, transaction_id, receiving";
+
+    private static final String CSV_HEADER = "date,transaction_id,type,counterparty_account,debit,credit,balance";
+    private static final String TEXT_LINE = "%-19s  %-28s %14s %14s %16s%n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BalanceHistoryService balanceHistoryService;
+    private final WorkerThreads workerThreads;
+    private final Path directory;
+    private final int workers;
+
+    private final ExecutorService jobRunner;
+    private final Map<YearMonth, StatementJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StatementService(JdbcTemplate jdbcTemplate,
+                            BalanceHistoryService balanceHistoryService,
+                            WorkerThreads workerThreads,
+                            @Value("${bank.statements.dir:statements}") String directory,
+                            @Value("${bank.statements.workers:4}") int workers) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.balanceHistoryService = balanceHistoryService;
+        this.workerThreads = workerThreads;
+        this.directory = Paths.get(directory);
+        this.workers = workers;
+        this.jobRunner = Executors.newSingleThreadExecutor(workerThreads.factory("statement-job"));
+    }
+
+    // Months that were started but never marked completed pick up where they stopped
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        try (Stream<Path> months = Files.list(directory)) {
+            for (Path monthDirectory : months.toList()) {
+                if (Files.exists(monthDirectory.resolve(CHECKPOINT)) && !Files.exists(monthDirectory.resolve(COMPLETED))) {
+                    try {
+                        start(YearMonth.parse(monthDirectory.getFileName().toString()));
+                    } catch (DateTimeParseException ignored) {
+                        // not a statement month
+                    }
+                }
+            }
+        }
+    }
+
+    @Scheduled(cron = "${bank.statements.cron:0 30 1 1 * *}")
+    public void previousMonth() {
+        start(YearMonth.now().minusMonths(1));
+    }
+
+    /**
+     * Queue statements for a finished month; jobs run one at a time. Returns the month's job,
+     * the already queued or running one if there is one.
+     */
+    public synchronized StatementJob start(YearMonth month) {
+        if (!month.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Statements are only generated for finished months");
+        }
+        StatementJob existing = jobs.get(month);
+        if (existing != null && !existing.isFinished()) {
+            return existing;
+        }
+        StatementJob job = new StatementJob(month);
+        jobs.put(month, job);
+        jobRunner.submit(() -> run(job));
+        return job;
+    }
+
+    public Optional<StatementJob> find(YearMonth month) {
+        return Optional.ofNullable(jobs.get(month));
+    }
+
+    public Collection<StatementJob> findAll() {
+        return jobs.values();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobRunner.shutdownNow();
+    }
+
+    // ================== JOB ==================
+    private void run(StatementJob job) {
+        job.status = "RUNNING";
+        long startNanos = System.nanoTime();
+        job.runStartNanos = startNanos;
+        Path monthDirectory = directory.resolve(job.month.toString());
+        ExecutorService pool = null;
+        try {
+            Files.createDirectories(monthDirectory);
+            Path checkpointPath = monthDirectory.resolve(CHECKPOINT);
+            Set<String> finishedChunks = readCheckpoint(checkpointPath);
+
+            List<AccountRow> accounts = jdbcTemplate.query(
+                    "SELECT account_id, account_type FROM accounts ORDER BY account_id",
+                    (rs, i) -> new AccountRow(rs.getLong(1), rs.getString(2)));
+            job.accounts.set(accounts.size());
+
+            try (BufferedWriter checkpoint = Files.newBufferedWriter(checkpointPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                Checkpoint out = new Checkpoint(checkpoint);
+                pool = Executors.newFixedThreadPool(workers, workerThreads.factory("statement-worker"));
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int i = 0; i < accounts.size(); i += ACCOUNTS_PER_CHUNK) {
+                    List<AccountRow> chunk = accounts.subList(i, Math.min(i + ACCOUNTS_PER_CHUNK, accounts.size()));
+                    // First and last id: if accounts were deleted since the checkpoint, the chunks
+                    // shifted and no longer match, so they run again (existing files are still skipped)
+                    String chunkKey = chunk.get(0).accountId() + "-" + chunk.get(chunk.size() - 1).accountId();
+                    if (finishedChunks.contains(chunkKey)) {
+                        job.skipped.addAndGet(chunk.size());
+                        continue;
+                    }
+                    tasks.add(pool.submit(() -> runChunk(job, monthDirectory, chunk, chunkKey, out)));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            }
+
+            if (job.failed.get() == 0) {
+                Files.writeString(monthDirectory.resolve(COMPLETED), LocalDateTime.now() + "\n");
+                job.status = "COMPLETED";
+            } else {
+                job.status = "COMPLETED_WITH_FAILURES";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.status = "INTERRUPTED";
+        } catch (Exception e) {
+            job.status = "FAILED: " + e.getMessage();
+            log.error("Statements for {} failed", job.month, e);
+        } finally {
+            if (pool != null) pool.shutdownNow();
+            job.elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+            job.finishedAt = LocalDateTime.now();
+            log.info("Statements for {}: {}, {} written, {} skipped, {} failed in {} ms ({} statements/s)",
+                    job.month, job.status, job.written.get(), job.skipped.get(), job.failed.get(),
+                    job.elapsed.toMillis(), String.format("%.1f", job.getStatementsPerSecond()));
+        }
+    }
+
+    private void runChunk(StatementJob job, Path monthDirectory, List<AccountRow> chunk, String chunkKey, Checkpoint out) {
+        boolean chunkFailed = false;
+        for (AccountRow account : chunk) {
+            if (Thread.currentThread().isInterrupted()) return;
+            Path base = monthDirectory.resolve(String.valueOf(account.accountId() / ACCOUNTS_PER_DIRECTORY))
+                    .resolve(String.valueOf(account.accountId()));
+            Path text = Paths.get(base + ".txt");
+            if (Files.exists(text)) { // the text file is moved into place last
+                job.skipped.incrementAndGet();
+                continue;
+            }
+            try {
+                writeStatement(job.month, account, base);
+                job.written.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                if (!chunkFailed) { // one line per chunk is enough to go on
+                    log.warn("Statement for account {} failed", account.accountId(), e);
+                }
+                chunkFailed = true;
+                job.failed.incrementAndGet();
+            }
+        }
+        if (!chunkFailed) {
+            out.finished(chunkKey);
+        }
+    }
+
+    // ================== RENDERING ==================
+    private void writeStatement(YearMonth month, AccountRow account, Path base) throws IOException {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        // transactions.timestamp is whole seconds, so this is the last instant of the previous month
+        BigDecimal opening = balanceHistoryService.balanceAt(account.accountId(), from.minusSeconds(1));
+
+        Files.createDirectories(base.getParent());
+        Path csvTemp = Paths.get(base + ".csv.tmp");
+        Path textTemp = Paths.get(base + ".txt.tmp");
+        try (BufferedWriter csv = Files.newBufferedWriter(csvTemp, StandardCharsets.UTF_8);
+             BufferedWriter text = Files.newBufferedWriter(textTemp, StandardCharsets.UTF_8)) {
+            csv.write(CSV_HEADER);
+            csv.newLine();
+            csv.write(month.atDay(1) + ",,OPENING_BALANCE,,,," + opening.toPlainString());
+            csv.newLine();
+
+            text.write("STATEMENT OF ACCOUNT\n\n");
+            text.write(String.format("Account:          %d (%s)%n", account.accountId(), account.accountType()));
+            text.write(String.format("Period:           %s to %s%n", month.atDay(1), month.atEndOfMonth()));
+            text.write(String.format("Opening balance:  %,.2f%n%n", opening));
+            text.write(String.format(TEXT_LINE, "Date", "Description", "Debit", "Credit", "Balance"));
+
+            Totals totals = new Totals(opening);
+            Timestamp start = Timestamp.valueOf(from);
+            Timestamp end = Timestamp.valueOf(to);
+            jdbcTemplate.query(MONTH_SQL, rs -> {
+                boolean receiving = rs.getInt(5) == 1;
+                String type = rs.getString(3);
+                BigDecimal signed = BalanceHistoryService.signedAmount(type, rs.getBigDecimal(4), receiving);
+                long counterparty = rs.getLong(6);
+                String counterpartyText = rs.wasNull() ? "" : String.valueOf(counterparty);
+                LocalDateTime timestamp = rs.getTimestamp(2).toLocalDateTime();
+                totals.add(signed);
+
+                String debit = signed.signum() < 0 ? signed.negate().toPlainString() : "";
+                String credit = signed.signum() >= 0 ? signed.toPlainString() : "";
+                try {
+                    csv.write(timestamp + "," + rs.getLong(1) + "," + type + "," + counterpartyText + ","
+                            + debit + "," + credit + "," + totals.balance.toPlainString());
+                    csv.newLine();
+                    text.write(String.format(TEXT_LINE, timestamp.toString().replace('T', ' '),
+                            describe(type, receiving, counterpartyText),
+                            debit.isEmpty() ? "" : String.format("%,.2f", signed.negate()),
+                            credit.isEmpty() ? "" : String.format("%,.2f", signed),
+                            String.format("%,.2f", totals.balance)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, account.accountId(), start, end, account.accountId(), start, end);
+
+            csv.write(month.atEndOfMonth() + ",,CLOSING_BALANCE,,,," + totals.balance.toPlainString());
+            csv.newLine();
+
+            text.write(String.format("%nTotal debits:     %,.2f%n", totals.debits));
+            text.write(String.format("Total credits:    %,.2f%n", totals.credits));
+            text.write(String.format("Closing balance:  %,.2f%n", totals.balance));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Files.move(csvTemp, Paths.get(base + ".csv"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(textTemp, Paths.get(base + ".txt"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String describe(String type, boolean receiving, String counterparty) {
+        if ("TRANSFER".equals(type)) {
+            return receiving ? "TRANSFER FROM " + counterparty : "TRANSFER TO " + counterparty;
+        }
+        return type;
+    }
+
+    private static Set<String> readCheckpoint(Path checkpoint) throws IOException {
+        Set<String> finished = new HashSet<>();
+        if (Files.exists(checkpoint)) {
+            for (String line : Files.readAllLines(checkpoint, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) finished.add(line.strip());
+            }
+        }
+        return finished;
+    }
+
+    private record AccountRow(long accountId, String accountType) {}
+
+    private static final class Totals {
+        BigDecimal balance;
+        BigDecimal debits = BigDecimal.ZERO;
+        BigDecimal credits = BigDecimal.ZERO;
+
+        Totals(BigDecimal opening) {
+            this.balance = opening;
+        }
+
+        void add(BigDecimal signed) {
+            balance = balance.add(signed);
+            if (signed.signum() < 0) {
+                debits = debits.add(signed.negate());
+            } else {
+                credits = credits.add(signed);
+            }
+        }
+    }
+
+    /**
+     * Finished chunks, one {@code firstAccountId-lastAccountId} line each, flushed as they finish.
+     * A lock rather than synchronized: waiting on a monitor would pin a virtual worker's carrier.
+     */
+    private static final class Checkpoint {
+        private final BufferedWriter writer;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        Checkpoint(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        void finished(String chunkKey) {
+            lock.lock();
+            try {
+                writer.write(chunkKey);
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Progress and outcome of one month's run. */
+    public static final class StatementJob {
+        private final YearMonth month;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong accounts = new AtomicLong();
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile long runStartNanos;
+        private volatile String status = "QUEUED";
+        private volatile LocalDateTime finishedAt;
+        private volatile Duration elapsed;
+
+        StatementJob(YearMonth month) {
+            this.month = month;
+        }
+
+        public String getMonth() { return month.toString(); }
+        public String getStatus() { return status; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public long getAccounts() { return accounts.get(); }
+        public long getWritten() { return written.get(); }
+        public long getSkipped() { return skipped.get(); }
+        public long getFailed() { return failed.get(); }
+
+        boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        /** Statements written per second of the run so far (accounts resumed past are not counted). */
+        public double getStatementsPerSecond() {
+            if (runStartNanos == 0) return 0;
+            Duration d = elapsed != null ? elapsed : Duration.ofNanos(System.nanoTime() - runStartNanos);
+            if (d.isZero()) return 0;
+            return written.get() / (d.toNanos() / 1e9);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.bank.service;
+
+import org.bank.config.SecondLevelCache;
+import org.bank.entities.Account;
+import org.bank.entities.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch writes shared by the posting engines: {@code transactions} rows (generated ids
+ * are copied back onto the entities) and relative balance updates. Must be called inside
+ * the caller's DB transaction. Balance updates evict the accounts from the second-level cache.
+ */
+@Component
+public class TransactionBatchWriter {
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (account_id, source_account_id, destination_account_id, "
+                    + "transaction_type, amount, timestamp, status, journal_seq, balance_after, destination_balance_after) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE account_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecondLevelCache secondLevelCache;
+
+    @Autowired
+    public TransactionBatchWriter(JdbcTemplate jdbcTemplate, SecondLevelCache secondLevelCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    public void insert(List<Transaction> rows) {
+        if (rows.isEmpty()) return;
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_TRANSACTION_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Transaction tx = rows.get(i);
+                        ps.setLong(1, tx.getAccount().getAccountId());
+                        ps.setObject(2, idOf(tx.getSourceAccount()), Types.BIGINT);
+                        ps.setObject(3, idOf(tx.getDestinationAccount()), Types.BIGINT);
+                        ps.setString(4, tx.getTransactionType());
+                        ps.setBigDecimal(5, tx.getAmount());
+                        ps.setTimestamp(6, Timestamp.valueOf(tx.getTimestamp()));
+                        ps.setString(7, tx.getStatus());
+                        ps.setObject(8, tx.getJournalSequence(), Types.BIGINT);
+                        ps.setBigDecimal(9, tx.getBalanceAfter());
+                        ps.setBigDecimal(10, tx.getDestinationBalanceAfter());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < rows.size() && i < generated.size(); i++) {
+            Object id = generated.get(i).values().stream().findFirst().orElse(null);
+            if (id instanceof Number n) {
+                rows.get(i).setTransactionId(n.longValue());
+            }
+        }
+    }
+
+    /**
+     * Apply {@code balance = balance + delta} per account. Pass the entries in ascending
+     * account-id order so concurrent writers lock rows in the same order.
+     */
+    public void applyDeltas(List<Map.Entry<Long, BigDecimal>> deltas) {
+        if (deltas.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setBigDecimal(1, deltas.get(i).getValue());
+                ps.setLong(2, deltas.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deltas.size();
+            }
+        });
+        secondLevelCache.evictAccounts(deltas.stream().map(Map.Entry::getKey).toList());
+    }
+
+    /**
+     * Detached SUCCESS row for {@code accountId}; only the account id and balance are set on the account stub.
+     * {@code balanceAfter} is also stamped on the row (null when unknown, e.g. journal replay).
+     */
+    public static Transaction successRow(long accountId, BigDecimal balanceAfter,
+                                         String type, BigDecimal amount, LocalDateTime timestamp) {
+        Transaction tx = new Transaction();
+        tx.setAccount(accountRef(accountId, balanceAfter));
+        tx.setTransactionType(type);
+        tx.setAmount(amount);
+        tx.setTimestamp(timestamp);
+        tx.setStatus("SUCCESS");
+        tx.setBalanceAfter(balanceAfter);
+        return tx;
+    }
+
+    /** Detached single-row TRANSFER: {@code account} is the sender, both legs are in source/destination. */
+    public static Transaction transferRow(long fromAccountId, BigDecimal fromBalanceAfter,
+                                          long toAccountId, BigDecimal toBalanceAfter,
+                                          BigDecimal amount, LocalDateTime timestamp) {
+        Transaction tx = successRow(fromAccountId, fromBalanceAfter, "TRANSFER", amount, timestamp);
+        tx.setSourceAccount(tx.getAccount());
+        tx.setDestinationAccount(accountRef(toAccountId, toBalanceAfter));
+        tx.setDestinationBalanceAfter(toBalanceAfter);
+        return tx;
+    }
+
+    private static Account accountRef(long accountId, BigDecimal balance) {
+        Account ref = new Account();
+        ref.setAccountId(accountId);
+        ref.setBalance(balance);
+        return ref;
+    }
+
+    private static Long idOf(Account account) {
+        return account == null ? null : account.getAccountId();
+    }
+}
@@ -0,0 +1,153 @@
+package org.bank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.bank.dto.TransactionExportRow;
+import org.bank.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Ledger exports written straight from a forward-only cursor to the caller's output stream,
+ * one row at a time, so memory use is the same for a thousand rows or a hundred million.
+ * Output is flushed every {@link #FLUSH_ROWS} rows, which an HTTP response sends as a chunk.
+ *
+ * The export holds a read-only transaction (and its pooled connection) until the last row
+ * is written.
+ */
+@Service
+public class TransactionExportService {
+
+    static final int FLUSH_ROWS = 1000;
+    private static final int BUFFER_CHARS = 64 * 1024;
+    private static final String CSV_HEADER = "transactionId,transactionType,amount,timestamp,status,"
+            + "accountId,destinationAccountId,balanceAfter,destinationBalanceAfter";
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format fromParam(String value) {
+            if (value == null || value.isBlank()) return NDJSON;
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value.trim())) return format;
+            }
+            throw new IllegalArgumentException("Unknown export format: " + value + " (ndjson or csv)");
+        }
+    }
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public TransactionExportService(TransactionRepository transactionRepository, ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Every row in the ledger, by id. Returns the number of rows written. */
+    @Transactional(readOnly = true)
+    public long exportLedger(Format format, OutputStream out) throws IOException {
+        try (Stream<TransactionExportRow> rows = transactionRepository.streamLedger()) {
+            return write(rows, format, out);
+        }
+    }
+
+    /** Rows sent from or received by any of the accounts, oldest first. Returns the number of rows written. */
+    @Transactional(readOnly = true)
+    public long exportHistory(Collection<Long> accountIds, Format format, OutputStream out) throws IOException {
+        if (accountIds.isEmpty()) {
+            return write(Stream.empty(), format, out);
+        }
+        try (Stream<TransactionExportRow> rows = transactionRepository.streamHistory(accountIds)) {
+            return write(rows, format, out);
+        }
+    }
+
+    // ================== WRITERS ==================
+    private long write(Stream<TransactionExportRow> rows, Format format, OutputStream out) throws IOException {
+        // Not closed: the output stream belongs to the caller
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_CHARS);
+        long count = 0;
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            for (Iterator<TransactionExportRow> it = rows.iterator(); it.hasNext(); ) {
+                writeCsv(writer, it.next());
+                if (++count % FLUSH_ROWS == 0) writer.flush();
+            }
+        } else {
+            SequenceWriter json = objectMapper.writer().withRootValueSeparator("\n").writeValues(writer);
+            for (Iterator<TransactionExportRow> it = rows.iterator(); it.hasNext(); ) {
+                json.write(it.next());
+                if (++count % FLUSH_ROWS == 0) json.flush();
+            }
+            json.flush();
+            if (count > 0) writer.write('\n');
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsv(Writer writer, TransactionExportRow row) throws IOException {
+        writer.write(String.valueOf(row.transactionId()));
+        writer.write(',');
+        writer.write(csv(row.transactionType()));
+        writer.write(',');
+        writer.write(plain(row.amount()));
+        writer.write(',');
+        writer.write(row.timestamp() == null ? "" : row.timestamp().toString());
+        writer.write(',');
+        writer.write(csv(row.status()));
+        writer.write(',');
+        writer.write(row.accountId() == null ? "" : row.accountId().toString());
+        writer.write(',');
+        writer.write(row.destinationAccountId() == null ? "" : row.destinationAccountId().toString());
+        writer.write(',');
+        writer.write(plain(row.balanceAfter()));
+        writer.write(',');
+        writer.write(plain(row.destinationBalanceAfter()));
+        writer.write('\n');
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "" : value.toPlainString();
+    }
+
+    // RFC 4180 quoting, only when needed
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,46 @@
+package org.bank.service;
+
+import org.bank.entities.Transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of merged transaction history, newest first.
+ * {@code nextCursor} is null on the last page; otherwise pass it back to get the following page.
+ */
+public record TransactionPage(List<Transaction> transactions, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Position of the last entry on a page: (timestamp, transactionId) plus which side of a
+     * TRANSFER it was, because a transfer between two of the customer's own accounts is shown
+     * twice with the same key (sent leg first, then received leg).
+     */
+    public record Cursor(LocalDateTime timestamp, long transactionId, boolean received) {
+
+        public String encode() {
+            String raw = timestamp + "|" + transactionId + "|" + (received ? "R" : "S");
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String value) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Invalid history cursor");
+                }
+                return new Cursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]), "R".equals(parts[2]));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid history cursor", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.bank.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One-time migration of legacy transfer pairs into single TRANSFER rows.
+ *
+ * Transfers used to be written as a TRANSFER_SENT row on the sender and a TRANSFER_RECEIVED
+ * row on the receiver, inserted back to back in the same DB transaction. A RECEIVED row can
+ * belong to a SENT row before it on a different account with the same amount and a timestamp
+ * within two seconds. A pair is merged only when each row is the other's single candidate:
+ * two concurrent transfers of the same amount can interleave their ids, and taking the
+ * nearest match would then cross them for good. The SENT row becomes the TRANSFER row (its
+ * source/destination columns are filled in) and the RECEIVED row is deleted; ambiguous SENT
+ * rows are logged and left as they are (history views still read them).
+ *
+ * Works in id-ordered chunks, one DB transaction each, so it can be stopped and rerun.
+ * It rewrites ledger rows while no posting may touch them, so it runs once all beans exist but
+ * before the web server starts and the scheduled jobs are registered; the other instances must
+ * be stopped too. Enable with {@code bank.ledger.migrate-transfer-pairs=true} on a single
+ * instance, and turn it off again once it has run.
+ */
+@Component
+public class TransferPairMigration implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferPairMigration.class);
+
+    private static final int CHUNK = 1000;
+    private static final Duration MAX_SKEW = Duration.ofSeconds(2);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    @Autowired
+    public TransferPairMigration(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${bank.ledger.migrate-transfer-pairs:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            long merged = migrate();
+            log.info("Transfer pair migration: merged {} pairs", merged);
+        }
+    }
+
+    /** Returns the number of pairs merged. */
+    public long migrate() {
+        long merged = 0;
+        long afterId = 0;
+        while (true) {
+            long cursor = afterId;
+            ChunkResult result = transactionTemplate.execute(status -> migrateChunk(cursor));
+            if (result == null || result.lastSentId() < 0) {
+                return merged;
+            }
+            merged += result.merged();
+            afterId = result.lastSentId();
+        }
+    }
+
+    private ChunkResult migrateChunk(long afterId) {
+        List<Row> sent = jdbcTemplate.query(
+                "SELECT transaction_id, account_id, amount, timestamp FROM transactions "
+                        + "WHERE transaction_type = 'TRANSFER_SENT' AND transaction_id > ? "
+                        + "ORDER BY transaction_id LIMIT " + CHUNK,
+                (rs, i) -> new Row(rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3), rs.getTimestamp(4)),
+                afterId);
+        if (sent.isEmpty()) {
+            return new ChunkResult(-1, 0);
+        }
+
+        long lastSentId = sent.get(sent.size() - 1).id();
+        Timestamp from = Timestamp.from(sent.stream().map(Row::timestamp).min(Timestamp::compareTo).orElseThrow()
+                .toInstant().minus(MAX_SKEW.multipliedBy(2)));
+        Timestamp to = Timestamp.from(sent.stream().map(Row::timestamp).max(Timestamp::compareTo).orElseThrow()
+                .toInstant().plus(MAX_SKEW.multipliedBy(2)));
+        // Every row either side could pair with: the chunk's partners, and the other senders they could belong to
+        List<Row> received = rowsBetween("TRANSFER_RECEIVED", from, to);
+        List<Row> senders = rowsBetween("TRANSFER_SENT", from, to);
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (Row debit : sent) {
+            List<Row> credits = received.stream().filter(credit -> pairs(debit, credit)).toList();
+            if (credits.size() == 1
+                    && senders.stream().filter(other -> pairs(other, credits.get(0))).count() == 1) {
+                Row credit = credits.get(0);
+                updates.add(new Object[]{debit.accountId(), credit.accountId(), debit.id()});
+                deletes.add(new Object[]{credit.id()});
+            } else {
+                log.warn("Transfer pair migration: TRANSFER_SENT {} (account {}, amount {}) has {} candidate "
+                                + "TRANSFER_RECEIVED rows or shares its candidate, left unmerged",
+                        debit.id(), debit.accountId(), debit.amount(), credits.size());
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE transactions SET transaction_type = 'TRANSFER', source_account_id = ?, "
+                            + "destination_account_id = ? WHERE transaction_id = ?",
+                    updates);
+            jdbcTemplate.batchUpdate("DELETE FROM transactions WHERE transaction_id = ?", deletes);
+        }
+        return new ChunkResult(lastSentId, updates.size());
+    }
+
+    private List<Row> rowsBetween(String type, Timestamp from, Timestamp to) {
+        return jdbcTemplate.query(
+                "SELECT transaction_id, account_id, amount, timestamp FROM transactions "
+                        + "WHERE timestamp BETWEEN ? AND ? AND transaction_type = ?",
+                (rs, i) -> new Row(rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3), rs.getTimestamp(4)),
+                from, to, type);
+    }
+
+    /** Whether {@code credit} could be the other half of the transfer that wrote {@code debit}. */
+    private static boolean pairs(Row debit, Row credit) {
+        return credit.id() > debit.id()
+                && credit.accountId() != debit.accountId()
+                && credit.amount().compareTo(debit.amount()) == 0
+                && withinSkew(debit.timestamp(), credit.timestamp());
+    }
+
+    private static boolean withinSkew(Timestamp a, Timestamp b) {
+        return Duration.between(a.toInstant(), b.toInstant()).abs().compareTo(MAX_SKEW) <= 0;
+    }
+
+    private record Row(long id, long accountId, BigDecimal amount, Timestamp timestamp) {}
+
+    private record ChunkResult(long lastSentId, int merged) {}
+}
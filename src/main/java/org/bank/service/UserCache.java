@@ -0,0 +1,149 @@
+package org.bank.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bank.entities.User;
+import org.bank.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache in front of {@link UserRepository#findByUsername}, which nearly every
+ * authenticated request hits. Entries are evicted least-recently-used beyond
+ * {@code bank.user-cache.max-entries} and expire after {@code bank.user-cache.ttl-seconds}.
+ *
+ * Callers get a detached copy, so nothing they change leaks into the cache. Anything that
+ * writes a user must call {@link #invalidate}; a load that raced with an invalidation is
+ * not cached.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private final UserRepository userRepository;
+    private final int maxEntries;
+    private final Duration ttl;
+
+    private final Map<String, Entry> entries;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public UserCache(UserRepository userRepository,
+                     @Value("${bank.user-cache.max-entries:10000}") int maxEntries,
+                     @Value("${bank.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                boolean evict = size() > UserCache.this.maxEntries;
+                if (evict) evictions.increment();
+                return evict;
+            }
+        };
+    }
+
+    public Optional<User> findByUsername(String username) {
+        if (username == null) return Optional.empty();
+
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(username);
+            if (entry != null) {
+                if (now < entry.expiresAtNanos()) {
+                    hits.increment();
+                    return Optional.of(copyOf(entry.user()));
+                }
+                entries.remove(username);
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        Optional<User> loaded = userRepository.findByUsername(username);
+        // Unknown usernames are not cached, so failed logins cannot fill the cache
+        loaded.ifPresent(user -> {
+            synchronized (entries) {
+                if (generation.get() == loadGeneration) {
+                    entries.put(username, new Entry(copyOf(user), System.nanoTime() + ttl.toNanos()));
+                }
+            }
+        });
+        return loaded;
+    }
+
+    public void invalidate(String username) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            if (username != null && entries.remove(username) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        long h = hits.sum();
+        long m = misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("hits", h);
+        snapshot.put("misses", m);
+        snapshot.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        snapshot.put("evictions", evictions.sum());
+        snapshot.put("invalidations", invalidations.sum());
+        snapshot.put("size", size);
+        snapshot.put("maxEntries", maxEntries);
+        return snapshot;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("bank.user.cache.requests", hits, LongAdder::sum)
+                .description("Username lookups served from the cache or the database")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("bank.user.cache.requests", misses, LongAdder::sum)
+                .description("Username lookups served from the cache or the database")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("bank.user.cache.evictions", evictions, LongAdder::sum)
+                .description("Entries evicted beyond max-entries")
+                .register(registry);
+        FunctionCounter.builder("bank.user.cache.invalidations", invalidations, LongAdder::sum)
+                .description("Entries dropped after a user write")
+                .register(registry);
+        Gauge.builder("bank.user.cache.size", this, cache -> {
+                    synchronized (cache.entries) {
+                        return cache.entries.size();
+                    }
+                })
+                .description("Entries currently cached")
+                .register(registry);
+    }
+
+    private static User copyOf(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(), user.getRole());
+    }
+
+    private record Entry(User user, long expiresAtNanos) {}
+}
@@ -0,0 +1,62 @@
+package org.bank.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories for the application's own I/O-bound pools (bulk payment lanes, ledger
+ * backfill). With {@code spring.threads.virtual.enabled=true} they hand out virtual threads,
+ * like Tomcat and the scheduler do in that mode; otherwise named daemon platform threads.
+ *
+ * Long-lived loops (posting partitions, group commit) and CPU-bound work (photo resizing)
+ * keep their own platform threads either way.
+ */
+@Component
+public class WorkerThreads {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkerThreads.class);
+
+    private final boolean virtual;
+
+    @Autowired
+    public WorkerThreads(@Value("${spring.threads.virtual.enabled:false}") boolean virtual,
+                         @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.virtual = virtual;
+        if (virtual) {
+            warnIfDriverCanStarveCarriers(connectionPoolSize);
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /** Threads named {@code <name>-0}, {@code <name>-1}, ... */
+    public ThreadFactory factory(String name) {
+        return virtual
+                ? Thread.ofVirtual().name(name + "-", 0).factory()
+                : Thread.ofPlatform().name(name + "-", 0).daemon(true).factory();
+    }
+
+    /** Carrier threads available to virtual threads in this JVM. */
+    public static int carrierThreads() {
+        return Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    // MySQL Connector/J 8.0 does its socket I/O inside synchronized blocks, which pins the carrier
+    // for the whole statement. With more pooled connections than carriers, queries would be capped
+    // at the carrier count and every other virtual thread would stall behind them.
+    private static void warnIfDriverCanStarveCarriers(int connectionPoolSize) {
+        int carriers = carrierThreads();
+        if (connectionPoolSize > carriers) {
+            log.warn("Virtual threads: connection pool ({}) is larger than the {} carrier threads and the JDBC "
+                    + "driver pins carriers during queries; start with -Djdk.virtualThreadScheduler.parallelism={} "
+                    + "or shrink the pool", connectionPoolSize, carriers, connectionPoolSize);
+        }
+    }
+}